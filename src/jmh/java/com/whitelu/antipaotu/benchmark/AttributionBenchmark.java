@@ -0,0 +1,90 @@
+package com.whitelu.antipaotu.benchmark;
+
+import com.whitelu.antipaotu.data.PlayerGrid;
+import com.whitelu.antipaotu.data.PlayerState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最近滑翔玩家判定（最近玩家归属方式下每个新区块执行一次）
+ * 玩家随机分布在 ±5000 格内，查询的区块取自某个玩家视距边缘附近，
+ * 与跑图时新区块出现的位置一致
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributionBenchmark {
+
+    private static final int QUERY_COUNT = 4096;
+    private static final int SPREAD_BLOCKS = 5000;
+    private static final int VIEW_DISTANCE = 10;
+
+    @Param({"10", "100", "500"})
+    public int players;
+
+    private PlayerGrid grid;
+    private PlayerState[] states;
+    private UUID worldId;
+    private int[] queryX;
+    private int[] queryZ;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        grid = new PlayerGrid();
+        worldId = new UUID(1L, 1L);
+        states = new PlayerState[players];
+        for (int i = 0; i < players; i++) {
+            PlayerState state = new PlayerState(new UUID(2L, i), "player" + i);
+            state.setPosition(worldId,
+                              random.nextInt(2 * SPREAD_BLOCKS) - SPREAD_BLOCKS,
+                              100 + random.nextInt(100),
+                              random.nextInt(2 * SPREAD_BLOCKS) - SPREAD_BLOCKS);
+            state.setGliding(true);
+            state.setViewDistance(VIEW_DISTANCE);
+            grid.update(state);
+            states[i] = state;
+        }
+
+        queryX = new int[QUERY_COUNT];
+        queryZ = new int[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            PlayerState state = states[random.nextInt(players)];
+            queryX[i] = ((int) state.getX() >> 4) + random.nextInt(2 * VIEW_DISTANCE + 1) - VIEW_DISTANCE;
+            queryZ[i] = ((int) state.getZ() >> 4) + random.nextInt(2 * VIEW_DISTANCE + 1) - VIEW_DISTANCE;
+        }
+    }
+
+    @Benchmark
+    public PlayerState findNearest() {
+        int i = next++ & (QUERY_COUNT - 1);
+        return grid.findNearest(worldId, queryX[i], queryZ[i]);
+    }
+
+    /**
+     * 玩家移动时更新网格（大多数移动不跨网格单元）
+     */
+    @Benchmark
+    public void updatePosition() {
+        PlayerState state = states[next++ % players];
+        state.setPosition(worldId, state.getX() + 1.5, state.getY(), state.getZ() + 1.5);
+        grid.update(state);
+    }
+}
@@ -0,0 +1,73 @@
+package com.whitelu.antipaotu.benchmark;
+
+import com.whitelu.antipaotu.data.BanIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录时的封禁查询
+ * 绝大多数登录的玩家没有被封禁，miss 是主要路径
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BanLookupBenchmark {
+
+    private static final int LOOKUP_COUNT = 1024;
+    private static final long NOW = 1_000L;
+
+    @Param({"10", "1000"})
+    public int bans;
+
+    private BanIndex index;
+    private UUID[] banned;
+    private UUID[] unbanned;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Map<UUID, Long> entries = new HashMap<>();
+        UUID[] bannedIds = new UUID[bans];
+        for (int i = 0; i < bans; i++) {
+            bannedIds[i] = new UUID(random.nextLong(), random.nextLong());
+            entries.put(bannedIds[i], NOW + 60_000L);
+        }
+        index = BanIndex.of(entries);
+
+        banned = new UUID[LOOKUP_COUNT];
+        unbanned = new UUID[LOOKUP_COUNT];
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            banned[i] = bannedIds[random.nextInt(bans)];
+            unbanned[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public boolean lookupHit() {
+        return index.isBanned(banned[next++ & (LOOKUP_COUNT - 1)], NOW);
+    }
+
+    @Benchmark
+    public boolean lookupMiss() {
+        return index.isBanned(unbanned[next++ & (LOOKUP_COUNT - 1)], NOW);
+    }
+}
@@ -0,0 +1,80 @@
+package com.whitelu.antipaotu.benchmark;
+
+import com.whitelu.antipaotu.data.ChunkData;
+import com.whitelu.antipaotu.data.ChunkStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 区块键的生成和 recentChunks 的写入
+ * 基准测试中没有注册世界，getChunkKey 的世界名为 null，字符串拼接的开销与真实世界名相近
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkKeyBenchmark {
+
+    private static final int KEY_COUNT = 1 << 16;
+
+    /**
+     * recentChunks 中已有的区块数量
+     */
+    @Param({"1000", "20000"})
+    public int storedChunks;
+
+    private ChunkStore store;
+    private ChunkData[] chunks;
+    private long[] keys;
+    private int next;
+    private long time;
+
+    @Setup
+    public void setup() {
+        store = new ChunkStore();
+        chunks = new ChunkData[KEY_COUNT];
+        keys = new long[KEY_COUNT];
+        // 沿飞行路线生成的连续区块
+        for (int i = 0; i < KEY_COUNT; i++) {
+            int chunkX = i / 16;
+            int chunkZ = i % 16 - 8;
+            chunks[i] = new ChunkData((short) 0, chunkX, chunkZ, i & 7, i, 0, 100, 0);
+            keys[i] = ChunkStore.key((short) 0, chunkX, chunkZ);
+        }
+        for (int i = 0; i < storedChunks; i++) {
+            store.put(ChunkStore.key((short) 1, i, -i), i, 0);
+        }
+    }
+
+    @Benchmark
+    public long packedKey() {
+        ChunkData chunk = chunks[next++ & (KEY_COUNT - 1)];
+        return ChunkStore.key(chunk.getWorldIndex(), chunk.getChunkX(), chunk.getChunkZ());
+    }
+
+    @Benchmark
+    public String chunkKeyString() {
+        return chunks[next++ & (KEY_COUNT - 1)].getChunkKey();
+    }
+
+    /**
+     * 写入新区块，超过 KEY_COUNT 次后变为覆盖已有记录
+     */
+    @Benchmark
+    public void storePut() {
+        store.put(keys[next++ & (KEY_COUNT - 1)], time++, 0);
+    }
+}
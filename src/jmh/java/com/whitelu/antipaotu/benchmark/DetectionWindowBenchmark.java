@@ -0,0 +1,92 @@
+package com.whitelu.antipaotu.benchmark;
+
+import com.whitelu.antipaotu.data.ChunkData;
+import com.whitelu.antipaotu.data.PlayerData;
+import com.whitelu.antipaotu.data.SlidingWindowCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlayerData 检测窗口的记录、计数和过期
+ * SlidingWindowCounter 的用例使用模拟时钟，每秒写入 chunksPerSecond 次，
+ * 让计数桶按真实的跑图速率轮换和过期；PlayerData 的用例使用真实时钟
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectionWindowBenchmark {
+
+    private static final int TIME_WINDOW_SECONDS = 30;
+
+    /**
+     * 每秒新区块数量：鞘翅飞行约 20，烟花加速约 60
+     */
+    @Param({"20", "60"})
+    public int chunksPerSecond;
+
+    private SlidingWindowCounter counter;
+    private PlayerData playerData;
+    private ChunkData chunkData;
+    private long tick;
+
+    @Setup
+    public void setup() {
+        counter = new SlidingWindowCounter(TIME_WINDOW_SECONDS);
+        playerData = new PlayerData(new UUID(3L, 3L), "player", TIME_WINDOW_SECONDS);
+        playerData.startNewDetectionWindow();
+        chunkData = new ChunkData((short) 0, 0, 0, 0, 1L, 0, 100, 0);
+
+        // 预先填满一个窗口
+        for (int i = 0; i < TIME_WINDOW_SECONDS * chunksPerSecond; i++) {
+            counter.add(nextSecond());
+        }
+    }
+
+    private long nextSecond() {
+        return tick++ / chunksPerSecond;
+    }
+
+    @Benchmark
+    public void windowAdd() {
+        counter.add(nextSecond());
+    }
+
+    /**
+     * 写入后立即计数，与区块生成时判断是否达到阈值的路径相同
+     */
+    @Benchmark
+    public int windowAddAndCount() {
+        long second = nextSecond();
+        counter.add(second);
+        return counter.count(second);
+    }
+
+    @Benchmark
+    public int playerDataAddAndCount() {
+        playerData.addChunkToCurrentWindow(chunkData);
+        return playerData.getCurrentWindowChunkCount();
+    }
+
+    /**
+     * 定时清理任务对每个玩家执行的过期检查
+     */
+    @Benchmark
+    public void playerDataCleanup() {
+        playerData.cleanupExpiredChunks(TIME_WINDOW_SECONDS);
+    }
+}
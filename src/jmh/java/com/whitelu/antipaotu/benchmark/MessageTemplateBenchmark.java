@@ -0,0 +1,59 @@
+package com.whitelu.antipaotu.benchmark;
+
+import com.whitelu.antipaotu.util.MessageTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 检测通知的占位符替换
+ * stringReplace 是改为预编译模板之前逐个占位符调用 String.replace 的做法，作为对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+
+    private static final String TEXT = "§c[反跑图] §e玩家 %player% 在 %time% 秒内生成了 %chunks% 个新区块，"
+            + "疑似跑图（连续 %count% 次）";
+
+    private MessageTemplate template;
+    private String playerName;
+    private int chunks;
+
+    @Setup
+    public void setup() {
+        template = MessageTemplate.compile(TEXT);
+        playerName = "Steve";
+        chunks = 120;
+    }
+
+    @Benchmark
+    public String templateRender() {
+        return template.render(
+            "%player%", playerName,
+            "%time%", "30",
+            "%chunks%", String.valueOf(chunks),
+            "%count%", "3");
+    }
+
+    @Benchmark
+    public String stringReplace() {
+        return TEXT.replace("%player%", playerName)
+                   .replace("%time%", "30")
+                   .replace("%chunks%", String.valueOf(chunks))
+                   .replace("%count%", "3");
+    }
+}
@@ -1,6 +1,7 @@
 package com.whitelu.antipaotu;
 
 import com.whitelu.antipaotu.config.ConfigManager;
+import com.whitelu.antipaotu.config.ConfigWatcher;
 import com.whitelu.antipaotu.listener.PlayerJoinListener;
 import com.whitelu.antipaotu.listener.PlayerMoveListener;
 import com.whitelu.antipaotu.listener.PlayerTeleportListener;
@@ -8,7 +9,14 @@ import com.whitelu.antipaotu.manager.BanManager;
 import com.whitelu.antipaotu.manager.ChunkTracker;
 import com.whitelu.antipaotu.manager.DetectionManager;
 import com.whitelu.antipaotu.manager.OneBotManager;
+import com.whitelu.antipaotu.manager.PlayerStateTracker;
+import com.whitelu.antipaotu.metrics.LatencyHistogram;
+import com.whitelu.antipaotu.metrics.MetricsRegistry;
+import com.whitelu.antipaotu.metrics.PrometheusExporter;
 import com.whitelu.antipaotu.util.MessageUtil;
+import com.whitelu.antipaotu.util.MonotonicClock;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import com.whitelu.antipaotu.util.TimeUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -34,11 +42,16 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
     
 
     private ConfigManager configManager;
+    private PlayerStateTracker playerStateTracker;
     private ChunkTracker chunkTracker;
     private DetectionManager detectionManager;
     private BanManager banManager;
     private OneBotManager oneBotManager;
+    private ConfigWatcher configWatcher;
+    private MetricsRegistry metricsRegistry;
+    private PrometheusExporter prometheusExporter;
     private MessageUtil messageUtil;
+    private SchedulerUtil schedulerUtil;
     
 
     private PlayerMoveListener playerMoveListener;
@@ -50,12 +63,17 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         instance = this;
         
 
+        this.metricsRegistry = new MetricsRegistry();
         this.configManager = new ConfigManager(this);
         this.messageUtil = new MessageUtil(this);
+        this.schedulerUtil = new SchedulerUtil(this);
+        this.playerStateTracker = new PlayerStateTracker(this);
         this.chunkTracker = new ChunkTracker(this);
         this.detectionManager = new DetectionManager(this);
         this.banManager = new BanManager(this);
         this.oneBotManager = new OneBotManager(this);
+        this.configWatcher = new ConfigWatcher(this);
+        this.prometheusExporter = new PrometheusExporter(this);
         
 
         if (!configManager.loadConfig()) {
@@ -64,6 +82,12 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
             return;
         }
         
+        // 加载持久化的封禁记录
+        banManager.loadBans();
+        
+        configWatcher.update(configManager.getSnapshot());
+        prometheusExporter.update(configManager.getSnapshot());
+        
 
         registerListeners();
         
@@ -86,11 +110,23 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
             chunkTracker.cleanup();
         }
         
+        if (playerStateTracker != null) {
+            playerStateTracker.cleanup();
+        }
+        
         if (banManager != null) {
             banManager.cleanup();
         }
         
 
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+        
+        if (prometheusExporter != null) {
+            prometheusExporter.stop();
+        }
+        
         if (oneBotManager != null) {
             oneBotManager.shutdown();
         }
@@ -135,6 +171,9 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
             case "unban":
                 return handleUnbanCommand(sender, args);
                 
+            case "metrics":
+                return handleMetricsCommand(sender, args);
+                
             default:
                 messageUtil.sendMessage(sender, "commands.usage-main");
                 return true;
@@ -151,7 +190,12 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         }
         
         try {
-            configManager.reloadConfig();
+            // 只重新应用发生变化的配置分组，验证失败时保留当前配置
+            if (!configManager.reloadConfig()) {
+                messageUtil.sendMessage(sender, "commands.reload-failed", 
+                                      "%error%", "配置验证失败，已保留当前配置，详见控制台");
+                return true;
+            }
             messageUtil.sendMessage(sender, "commands.reload-success");
             getLogger().info("配置文件已由" + sender.getName() + "重载");
         } catch (Exception e) {
@@ -200,8 +244,8 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         
 
         boolean isBanned = banManager.isBanned(target.getUniqueId());
-        String lastDetectionTime = playerData.getLastDetectionTime() != null 
-                                   ? playerData.getLastDetectionTime().toString()
+        String lastDetectionTime = playerData.getLastDetectionTime() != MonotonicClock.NEVER 
+                                   ? TimeUtil.formatClockTime(playerData.getLastDetectionTime())
                                    : "无";
         messageUtil.sendMessage(sender, "commands.status-info",
                               "%player%", playerName,
@@ -250,6 +294,72 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         return true;
     }
     
+    /**
+     * 处理性能统计命令
+     */
+    private boolean handleMetricsCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("antipaotu.metrics")) {
+            messageUtil.sendMessage(sender, "commands.no-permission");
+            return true;
+        }
+        
+        if (args.length >= 2) {
+            if (!args[1].equalsIgnoreCase("reset")) {
+                messageUtil.sendMessage(sender, "commands.usage-metrics");
+                return true;
+            }
+            metricsRegistry.reset();
+            messageUtil.sendMessage(sender, "commands.metrics-reset");
+            return true;
+        }
+        
+        messageUtil.sendMessage(sender, "commands.metrics-header",
+                              "%time%", messageUtil.formatTime(metricsRegistry.getSecondsSinceReset()));
+        
+        sendLatency(sender, "区块加载处理", metricsRegistry.getChunkLoadTime());
+        sendLatency(sender, "区块归属", metricsRegistry.getAttributionTime());
+        sendLatency(sender, "OneBot往返", metricsRegistry.getOneBotRoundTrip());
+        
+        metricsRegistry.getWorlds().forEach((worldName, world) ->
+            messageUtil.sendMessage(sender, "commands.metrics-world",
+                                  "%world%", worldName,
+                                  "%rate%", String.format("%.2f", world.getGenerated().getRatePerSecond()),
+                                  "%generated%", String.valueOf(world.getGenerated().getTotal()),
+                                  "%attributed%", String.valueOf(world.getAttributed().getTotal())));
+        
+        messageUtil.sendMessage(sender, "commands.metrics-detection",
+                              "%evaluations%", String.valueOf(metricsRegistry.getDetectionEvaluations()),
+                              "%detections%", String.valueOf(metricsRegistry.getDetections()),
+                              "%chunks%", String.valueOf(chunkTracker.getTrackedChunkCount()),
+                              "%players%", String.valueOf(detectionManager.getAllPlayerData().size()));
+        
+        messageUtil.sendMessage(sender, "commands.metrics-onebot",
+                              "%queue%", String.valueOf(oneBotManager.getQueueDepth()),
+                              "%sent%", String.valueOf(oneBotManager.getSentCount()),
+                              "%failed%", String.valueOf(oneBotManager.getFailedCount()),
+                              "%dropped%", String.valueOf(oneBotManager.getDroppedCount()));
+        
+        oneBotManager.getTargets().forEach(target ->
+            messageUtil.sendMessage(sender, "commands.metrics-target",
+                                  "%target%", (target.isGroup() ? "群" : "私聊") + target.getId(),
+                                  "%rate%", String.valueOf(target.getSendsLastMinute()),
+                                  "%pending%", String.valueOf(target.getPendingCount()),
+                                  "%dropped%", String.valueOf(target.getDroppedCount())));
+        
+        return true;
+    }
+    
+    private void sendLatency(CommandSender sender, String name, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        messageUtil.sendMessage(sender, "commands.metrics-latency",
+                              "%name%", name,
+                              "%count%", String.valueOf(snapshot.getCount()),
+                              "%p50%", MetricsRegistry.formatNanos(snapshot.getValueAtPercentile(50.0)),
+                              "%p99%", MetricsRegistry.formatNanos(snapshot.getValueAtPercentile(99.0)),
+                              "%p999%", MetricsRegistry.formatNanos(snapshot.getValueAtPercentile(99.9)),
+                              "%max%", MetricsRegistry.formatNanos(snapshot.getMax()));
+    }
+    
     @Override
     @Nullable
     public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
@@ -262,7 +372,7 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         
         if (args.length == 1) {
 
-            List<String> subCommands = Arrays.asList("reload", "status", "unban");
+            List<String> subCommands = Arrays.asList("reload", "status", "unban", "metrics");
             return subCommands.stream()
                     .filter(sub -> sub.toLowerCase().startsWith(args[0].toLowerCase()))
                     .collect(Collectors.toList());
@@ -300,6 +410,12 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
                                 .collect(Collectors.toList());
                     }
                     break;
+                    
+                case "metrics":
+                    if (sender.hasPermission("antipaotu.metrics") && "reset".startsWith(args[1].toLowerCase())) {
+                        completions.add("reset");
+                    }
+                    break;
             }
         }
         
@@ -315,6 +431,10 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         return configManager;
     }
     
+    public PlayerStateTracker getPlayerStateTracker() {
+        return playerStateTracker;
+    }
+    
     public ChunkTracker getChunkTracker() {
         return chunkTracker;
     }
@@ -331,7 +451,23 @@ public class AntiPaotuPlugin extends JavaPlugin implements TabCompleter {
         return messageUtil;
     }
     
+    public SchedulerUtil getSchedulerUtil() {
+        return schedulerUtil;
+    }
+    
     public OneBotManager getOneBotManager() {
         return oneBotManager;
     }
+    
+    public ConfigWatcher getConfigWatcher() {
+        return configWatcher;
+    }
+    
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
+    public PrometheusExporter getPrometheusExporter() {
+        return prometheusExporter;
+    }
 } 
\ No newline at end of file
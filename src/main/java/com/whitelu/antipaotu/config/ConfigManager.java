@@ -1,43 +1,32 @@
 package com.whitelu.antipaotu.config;
 
 import com.whitelu.antipaotu.AntiPaotuPlugin;
-import org.bukkit.configuration.file.FileConfiguration;
+import com.whitelu.antipaotu.manager.NotificationQueue;
+import com.whitelu.antipaotu.util.MessageTemplate;
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.util.EnumSet;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
+import java.util.stream.Collectors;
 
 /**
  * 配置管理器类
- * 用于加载和管理插件配置
+ * 用于加载和管理插件配置。
+ * 配置值保存在不可变的 ConfigSnapshot 中，重载时整体替换引用，
+ * 异步线程读取时不会看到新旧混合的配置；需要多个配置值的处理应通过 getSnapshot() 读取同一个快照
 
  */
 public class ConfigManager {
     
     private final AntiPaotuPlugin plugin;
-    private FileConfiguration config;
     
-
-    private int timeWindow;
-    private boolean heightFilterEnabled;
-    private int heightThreshold;
-    private int cooldownSeconds;
-    private int continuousThreshold;
-    private int banDurationMinutes;
-    private boolean debugEnabled;
-    private boolean debugVerbose;
-    
-    // 新增配置项
-    private boolean disableDetectionInWater;
-    private int dimensionSwitchCooldownSeconds;
-
-    private boolean oneBotEnabled;
-    private String oneBotWebSocketUrl;
-    private String oneBotAccessToken;
-    private List<Long> oneBotGroupIds;
-    private List<Long> oneBotPrivateIds;
-    private int oneBotConnectTimeout;
+    // 当前生效的配置快照
+    private volatile ConfigSnapshot snapshot;
+    
+    // 插件 jar 内的默认配置，配置文件中缺少的键使用这里的值
+    private volatile Configuration defaults;
     
     public ConfigManager(AntiPaotuPlugin plugin) {
         this.plugin = plugin;
@@ -55,13 +44,11 @@ public class ConfigManager {
             
 
             plugin.reloadConfig();
-            this.config = plugin.getConfig();
+            this.defaults = plugin.getConfig().getDefaults();
+            this.snapshot = new ConfigSnapshot(plugin.getConfig(), plugin.getLogger());
             
 
-            cacheConfigValues();
-            
-
-            if (!validateConfig()) {
+            if (!snapshot.validate(plugin.getLogger())) {
                 plugin.getLogger().severe("配置文件验证失败！");
                 return false;
             }
@@ -77,155 +64,114 @@ public class ConfigManager {
     
     /**
      * 重载配置文件
+     * 验证失败时保留当前配置
+     * 
+     * @return 是否重载成功
      */
-    public void reloadConfig() {
+    public boolean reloadConfig() {
         plugin.reloadConfig();
-        this.config = plugin.getConfig();
-        cacheConfigValues();
+        this.defaults = plugin.getConfig().getDefaults();
+        ConfigSnapshot loaded = new ConfigSnapshot(plugin.getConfig(), plugin.getLogger());
         
-        if (!validateConfig()) {
-            plugin.getLogger().warning("重载的配置文件验证失败！");
+        if (!loaded.validate(plugin.getLogger())) {
+            plugin.getLogger().warning("重载的配置文件验证失败，保留当前配置");
+            return false;
         }
+        applySnapshot(loaded);
         
         plugin.getLogger().info("配置文件已重载");
+        return true;
     }
     
     /**
-     * 缓存配置值
+     * 解析配置文件内容，缺少的键与 plugin.getConfig() 一样使用插件 jar 内的默认值，
+     * 同一个文件无论通过命令重载还是自动重载都得到相同的快照
+     * 可以在任意线程调用
+     * 
+     * @param contents 配置文件内容
+     * @return 未验证的配置快照
+     * @throws InvalidConfigurationException 内容不是有效的 YAML
      */
-    private void cacheConfigValues() {
-        this.timeWindow = config.getInt("detection.time-window", 30);
-        this.heightFilterEnabled = config.getBoolean("detection.height-filter-enabled", false);
-        this.heightThreshold = config.getInt("detection.height-threshold", 200);
-        this.cooldownSeconds = config.getInt("detection.cooldown-seconds", 3);
-        this.continuousThreshold = config.getInt("detection.continuous-threshold", 5);
-        this.banDurationMinutes = config.getInt("ban.duration-minutes", 10);
-        this.debugEnabled = config.getBoolean("debug.enabled", false);
-        this.debugVerbose = config.getBoolean("debug.verbose", false);
-        
-        // 新增配置项
-        this.disableDetectionInWater = config.getBoolean("detection.disable-detection-in-water", true);
-        this.dimensionSwitchCooldownSeconds = config.getInt("detection.dimension-switch-cooldown-seconds", 30);
-
-        this.oneBotEnabled = config.getBoolean("onebot.enabled", false);
-        this.oneBotWebSocketUrl = config.getString("onebot.websocket-url", "ws://localhost:6700");
-        this.oneBotAccessToken = config.getString("onebot.access-token", "");
-        
-        // 加载群聊ID列表，支持新格式和旧格式
-        this.oneBotGroupIds = loadGroupIds();
-        
-        // 加载私聊ID列表，支持新格式和旧格式
-        this.oneBotPrivateIds = loadPrivateIds();
-        
-        this.oneBotConnectTimeout = config.getInt("onebot.connect-timeout", 10);
+    public ConfigSnapshot parse(String contents) throws InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        Configuration defaults = this.defaults;
+        if (defaults != null) {
+            yaml.setDefaults(defaults);
+        }
+        yaml.loadFromString(contents);
+        return new ConfigSnapshot(yaml, plugin.getLogger());
     }
     
     /**
-     * 加载群聊ID列表
-     * 支持新的 group-ids 列表格式和旧的 group-id 单个值格式
+     * 应用已通过验证的配置文件内容，同时刷新 plugin.getConfig()，使其与当前快照一致
+     * 在全局线程上调用
+     * 
+     * @param contents 配置文件内容
+     * @param loaded 由 parse 得到并已验证的快照
+     * @return 配置是否有变化
      */
-    private List<Long> loadGroupIds() {
-        List<Long> groupIds = new ArrayList<>();
-        
-        // 首先尝试读取新格式 group-ids 列表
-        if (config.isList("onebot.group-ids")) {
-            List<?> configList = config.getList("onebot.group-ids");
-            if (configList != null) {
-                for (Object item : configList) {
-                    try {
-                        long groupId = Long.parseLong(item.toString());
-                        if (groupId > 0) { // 只添加有效的群聊ID
-                            groupIds.add(groupId);
-                        }
-                    } catch (NumberFormatException e) {
-                        plugin.getLogger().warning("无效的群聊ID: " + item);
-                    }
-                }
-            }
-        }
-        
-        // 如果没有新格式配置，尝试读取旧格式 group-id 兼容性
-        if (groupIds.isEmpty() && config.contains("onebot.group-id")) {
-            long oldGroupId = config.getLong("onebot.group-id", 0);
-            if (oldGroupId > 0) {
-                groupIds.add(oldGroupId);
-                plugin.getLogger().info("检测到旧格式的群聊ID配置，建议更新为 group-ids 列表格式");
-            }
+    public boolean applyFile(String contents, ConfigSnapshot loaded) {
+        try {
+            plugin.getConfig().loadFromString(contents);
+        } catch (InvalidConfigurationException e) {
+            // 内容已由 parse 解析成功，不会发生
+            plugin.getLogger().warning("刷新插件配置对象失败: " + e.getMessage());
         }
-        
-        return groupIds;
+        return applySnapshot(loaded);
     }
     
     /**
-     * 加载私聊ID列表
-     * 支持新的 private-ids 列表格式和旧的 private-id 单个值格式
+     * 替换当前配置快照，只重新应用发生变化的配置分组
+     * 在全局线程上调用
+     * 
+     * @param loaded 新的配置快照
+     * @return 配置是否有变化
      */
-    private List<Long> loadPrivateIds() {
-        List<Long> privateIds = new ArrayList<>();
-        
-        // 首先尝试读取新格式 private-ids 列表
-        if (config.isList("onebot.private-ids")) {
-            List<?> configList = config.getList("onebot.private-ids");
-            if (configList != null) {
-                for (Object item : configList) {
-                    try {
-                        long privateId = Long.parseLong(item.toString());
-                        if (privateId > 0) { // 只添加有效的私聊ID
-                            privateIds.add(privateId);
-                        }
-                    } catch (NumberFormatException e) {
-                        plugin.getLogger().warning("无效的私聊ID: " + item);
-                    }
-                }
-            }
-        }
+    public synchronized boolean applySnapshot(ConfigSnapshot loaded) {
+        ConfigSnapshot previous = this.snapshot;
+        this.snapshot = loaded;
         
-        // 如果没有新格式配置，尝试读取旧格式 private-id 兼容性
-        if (privateIds.isEmpty() && config.contains("onebot.private-id")) {
-            long oldPrivateId = config.getLong("onebot.private-id", 0);
-            if (oldPrivateId > 0) {
-                privateIds.add(oldPrivateId);
-                plugin.getLogger().info("检测到旧格式的私聊ID配置，建议更新为 private-ids 列表格式");
-            }
+        EnumSet<ConfigSnapshot.Section> changed = loaded.diff(previous);
+        if (changed.isEmpty()) {
+            return false;
         }
         
-        return privateIds;
-    }
-    
-    /**
-     * 验证配置值的合理性
-     * 
-     * @return 配置是否有效
-     */
-    private boolean validateConfig() {
-        boolean valid = true;
+        plugin.getLogger().info("配置已变更: " + changed.stream()
+            .map(ConfigSnapshot.Section::getDisplayName)
+            .collect(Collectors.joining(", ")));
         
-        if (timeWindow <= 0) {
-            plugin.getLogger().warning("检测时间窗口必须大于0，当前值: " + timeWindow);
-            valid = false;
+        if (changed.contains(ConfigSnapshot.Section.DETECTION_WINDOW)) {
+            plugin.getDetectionManager().resizeDetectionWindows(loaded.getTimeWindow());
         }
         
-        if (heightThreshold < 0) {
-            plugin.getLogger().warning("高度阈值不能为负数，当前值: " + heightThreshold);
-            valid = false;
+        if (changed.contains(ConfigSnapshot.Section.BAN)) {
+            plugin.getLogger().info("封禁时长已修改为" + loaded.getBanDurationMinutes() + 
+                                  "分钟，只对之后的封禁生效");
         }
         
-        if (cooldownSeconds < 0) {
-            plugin.getLogger().warning("冷却时间不能为负数，当前值: " + cooldownSeconds);
-            valid = false;
+        boolean connectionChanged = changed.contains(ConfigSnapshot.Section.ONEBOT_CONNECTION);
+        if (connectionChanged || changed.contains(ConfigSnapshot.Section.ONEBOT_DELIVERY)) {
+            plugin.getOneBotManager().reload(connectionChanged);
         }
         
-        if (continuousThreshold <= 0) {
-            plugin.getLogger().warning("连续检测次数阈值必须大于0，当前值: " + continuousThreshold);
-            valid = false;
+        if (changed.contains(ConfigSnapshot.Section.AUTO_RELOAD)) {
+            plugin.getConfigWatcher().update(loaded);
         }
         
-        if (banDurationMinutes <= 0) {
-            plugin.getLogger().warning("封禁时长必须大于0，当前值: " + banDurationMinutes);
-            valid = false;
+        if (changed.contains(ConfigSnapshot.Section.METRICS)) {
+            plugin.getPrometheusExporter().update(loaded);
         }
         
-        return valid;
+        return true;
+    }
+    
+    /**
+     * 获取当前的配置快照
+     * 
+     * @return 配置快照
+     */
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
     }
     
     /**
@@ -236,7 +182,18 @@ public class ConfigManager {
      * @return 消息内容
      */
     public String getMessage(String path, String defaultValue) {
-        return config.getString("messages." + path, defaultValue);
+        return snapshot.getMessage(path, defaultValue);
+    }
+    
+    /**
+     * 获取消息模板
+     * 
+     * @param path 消息路径
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public MessageTemplate getMessageTemplate(String path, String defaultValue) {
+        return snapshot.getMessageTemplate(path, defaultValue);
     }
     
     /**
@@ -247,66 +204,91 @@ public class ConfigManager {
      * @return 处理后的消息内容
      */
     public String getFormattedMessage(String path, String defaultValue) {
-        String message = getMessage(path, defaultValue);
-        return message.replace("&", "§");
+        return snapshot.getFormattedMessage(path, defaultValue);
+    }
+    
+    /**
+     * 获取消息模板（带颜色代码转换）
+     * 
+     * @param path 消息路径
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public MessageTemplate getFormattedMessageTemplate(String path, String defaultValue) {
+        return snapshot.getFormattedMessageTemplate(path, defaultValue);
     }
     
-
     public int getTimeWindow() {
-        return timeWindow;
+        return snapshot.getTimeWindow();
     }
     
     public boolean isHeightFilterEnabled() {
-        return heightFilterEnabled;
+        return snapshot.isHeightFilterEnabled();
     }
     
     public int getHeightThreshold() {
-        return heightThreshold;
+        return snapshot.getHeightThreshold();
     }
     
     public int getCooldownSeconds() {
-        return cooldownSeconds;
+        return snapshot.getCooldownSeconds();
     }
     
     public int getContinuousThreshold() {
-        return continuousThreshold;
+        return snapshot.getContinuousThreshold();
     }
     
     public int getBanDurationMinutes() {
-        return banDurationMinutes;
+        return snapshot.getBanDurationMinutes();
     }
     
     public boolean isDebugEnabled() {
-        return debugEnabled;
+        return snapshot.isDebugEnabled();
     }
     
     public boolean isDebugVerbose() {
-        return debugVerbose;
+        return snapshot.isDebugVerbose();
     }
     
     public boolean isDisableDetectionInWater() {
-        return disableDetectionInWater;
+        return snapshot.isDisableDetectionInWater();
     }
-
+    
     public int getDimensionSwitchCooldownSeconds() {
-        return dimensionSwitchCooldownSeconds;
+        return snapshot.getDimensionSwitchCooldownSeconds();
     }
     
-    public FileConfiguration getConfig() {
-        return config;
+    public String getAttributionMode() {
+        return snapshot.getAttributionMode();
+    }
+    
+    /**
+     * 是否按区块实际发送给的玩家归属区块生成
+     * 
+     * @return 是否为 player-chunk 模式
+     */
+    public boolean isPlayerChunkAttribution() {
+        return snapshot.isPlayerChunkAttribution();
     }
     
-
     public boolean isOneBotEnabled() {
-        return oneBotEnabled;
+        return snapshot.isOneBotEnabled();
+    }
+    
+    public String getOneBotTransport() {
+        return snapshot.getOneBotTransport();
     }
     
     public String getOneBotWebSocketUrl() {
-        return oneBotWebSocketUrl;
+        return snapshot.getOneBotWebSocketUrl();
+    }
+    
+    public String getOneBotHttpUrl() {
+        return snapshot.getOneBotHttpUrl();
     }
     
     public String getOneBotAccessToken() {
-        return oneBotAccessToken;
+        return snapshot.getOneBotAccessToken();
     }
     
     /**
@@ -315,7 +297,7 @@ public class ConfigManager {
      * @return 群聊ID列表（只读）
      */
     public List<Long> getOneBotGroupIds() {
-        return Collections.unmodifiableList(oneBotGroupIds);
+        return snapshot.getOneBotGroupIds();
     }
     
     /**
@@ -324,7 +306,7 @@ public class ConfigManager {
      * @return 私聊ID列表（只读）
      */
     public List<Long> getOneBotPrivateIds() {
-        return Collections.unmodifiableList(oneBotPrivateIds);
+        return snapshot.getOneBotPrivateIds();
     }
     
     /**
@@ -335,7 +317,7 @@ public class ConfigManager {
      */
     @Deprecated
     public long getOneBotGroupId() {
-        return oneBotGroupIds.isEmpty() ? 0 : oneBotGroupIds.get(0);
+        return snapshot.getOneBotGroupId();
     }
     
     /**
@@ -346,15 +328,51 @@ public class ConfigManager {
      */
     @Deprecated
     public long getOneBotPrivateId() {
-        return oneBotPrivateIds.isEmpty() ? 0 : oneBotPrivateIds.get(0);
+        return snapshot.getOneBotPrivateId();
     }
     
     public int getOneBotConnectTimeout() {
-        return oneBotConnectTimeout;
+        return snapshot.getOneBotConnectTimeout();
+    }
+    
+    public int getOneBotRequestTimeout() {
+        return snapshot.getOneBotRequestTimeout();
+    }
+    
+    public int getOneBotHeartbeatInterval() {
+        return snapshot.getOneBotHeartbeatInterval();
+    }
+    
+    public int getOneBotDigestWindowSeconds() {
+        return snapshot.getOneBotDigestWindowSeconds();
+    }
+    
+    public int getOneBotDigestMaxPlayers() {
+        return snapshot.getOneBotDigestMaxPlayers();
+    }
+    
+    public int getOneBotRateLimitPerMinute() {
+        return snapshot.getOneBotRateLimitPerMinute();
+    }
+    
+    public int getOneBotRateLimitBurst() {
+        return snapshot.getOneBotRateLimitBurst();
+    }
+    
+    public int getOneBotQueueCapacity() {
+        return snapshot.getOneBotQueueCapacity();
+    }
+    
+    public NotificationQueue.OverflowPolicy getOneBotQueueOverflowPolicy() {
+        return snapshot.getOneBotQueueOverflowPolicy();
+    }
+    
+    public int getOneBotQueueBlockTimeout() {
+        return snapshot.getOneBotQueueBlockTimeout();
     }
     
     /**
-     * 获取OneBot消息模板
+     * 获取OneBot消息
      * 支持从列表中随机选择消息，同时保持向下兼容性
      * 
      * @param messageType 消息类型
@@ -362,22 +380,18 @@ public class ConfigManager {
      * @return 消息模板
      */
     public String getOneBotMessage(String messageType, String defaultValue) {
-        String configPath = "onebot.messages." + messageType;
-
-        if (config.isList(configPath)) {
-            List<String> messageList = config.getStringList(configPath);
-            if (messageList != null && !messageList.isEmpty()) {
-                // 从列表中随机选择一个消息
-                Random random = new Random();
-                return messageList.get(random.nextInt(messageList.size()));
-            }
-        }
-
-        String singleMessage = config.getString(configPath);
-        if (singleMessage != null && !singleMessage.isEmpty()) {
-            return singleMessage;
-        }
-        
-        return defaultValue;
+        return snapshot.getOneBotMessage(messageType, defaultValue);
+    }
+    
+    /**
+     * 获取OneBot消息模板
+     * 配置为列表时每次随机选择一个
+     * 
+     * @param messageType 消息类型
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public MessageTemplate getOneBotMessageTemplate(String messageType, String defaultValue) {
+        return snapshot.getOneBotMessageTemplate(messageType, defaultValue);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,627 @@
+package com.whitelu.antipaotu.config;
+
+import com.whitelu.antipaotu.manager.NotificationQueue;
+import com.whitelu.antipaotu.util.MessageTemplate;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * 配置快照
+ * 一次加载中解析出的全部配置值、目标列表和编译好的消息模板，创建后不再修改。
+ * 重载时构建新的快照并整体替换，读取方在一次处理中使用同一个快照即可得到一致的配置
+ */
+public final class ConfigSnapshot {
+    
+    /**
+     * 配置分组，重载时只重新应用发生变化的分组
+     */
+    public enum Section {
+        DETECTION_WINDOW("检测时间窗口"),
+        DETECTION("检测规则"),
+        BAN("封禁"),
+        DEBUG("调试"),
+        ONEBOT_CONNECTION("OneBot连接"),
+        ONEBOT_DELIVERY("OneBot发送"),
+        AUTO_RELOAD("自动重载"),
+        METRICS("指标导出");
+        
+        private final String displayName;
+        
+        Section(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    // 编译好的消息模板
+    private final MessageTemplates messageTemplates;
+    
+
+    private final int timeWindow;
+    private final boolean heightFilterEnabled;
+    private final int heightThreshold;
+    private final int cooldownSeconds;
+    private final int continuousThreshold;
+    private final int banDurationMinutes;
+    private final boolean debugEnabled;
+    private final boolean debugVerbose;
+    
+    // 新增配置项
+    private final boolean disableDetectionInWater;
+    private final int dimensionSwitchCooldownSeconds;
+    private final String attributionMode;
+
+    private final boolean oneBotEnabled;
+    private final String oneBotTransport;
+    private final String oneBotWebSocketUrl;
+    private final String oneBotHttpUrl;
+    private final String oneBotAccessToken;
+    private final List<Long> oneBotGroupIds;
+    private final List<Long> oneBotPrivateIds;
+    private final int oneBotConnectTimeout;
+    private final int oneBotRequestTimeout;
+    private final int oneBotHeartbeatInterval;
+    private final int oneBotDigestWindowSeconds;
+    private final int oneBotDigestMaxPlayers;
+    private final int oneBotRateLimitPerMinute;
+    private final int oneBotRateLimitBurst;
+    private final int oneBotQueueCapacity;
+    private final String oneBotQueueOverflowPolicy;
+    private final int oneBotQueueBlockTimeout;
+    
+    private final boolean autoReloadEnabled;
+    private final int autoReloadDebounceMillis;
+    
+    private final boolean prometheusEnabled;
+    private final String prometheusBindAddress;
+    private final int prometheusPort;
+    
+    /**
+     * 从配置文件解析快照
+     * 
+     * @param config 配置文件
+     * @param logger 输出解析警告的日志记录器
+     */
+    public ConfigSnapshot(FileConfiguration config, Logger logger) {
+        this.timeWindow = config.getInt("detection.time-window", 30);
+        this.heightFilterEnabled = config.getBoolean("detection.height-filter-enabled", false);
+        this.heightThreshold = config.getInt("detection.height-threshold", 200);
+        this.cooldownSeconds = config.getInt("detection.cooldown-seconds", 3);
+        this.continuousThreshold = config.getInt("detection.continuous-threshold", 5);
+        this.banDurationMinutes = config.getInt("ban.duration-minutes", 10);
+        this.debugEnabled = config.getBoolean("debug.enabled", false);
+        this.debugVerbose = config.getBoolean("debug.verbose", false);
+        
+        // 新增配置项
+        this.disableDetectionInWater = config.getBoolean("detection.disable-detection-in-water", true);
+        this.dimensionSwitchCooldownSeconds = config.getInt("detection.dimension-switch-cooldown-seconds", 30);
+        this.attributionMode = config.getString("detection.attribution-mode", "player-chunk").toLowerCase();
+
+        this.oneBotEnabled = config.getBoolean("onebot.enabled", false);
+        this.oneBotTransport = config.getString("onebot.transport", "websocket");
+        this.oneBotWebSocketUrl = config.getString("onebot.websocket-url", "ws://localhost:6700");
+        this.oneBotHttpUrl = config.getString("onebot.http-url", "http://localhost:5700");
+        this.oneBotAccessToken = config.getString("onebot.access-token", "");
+        
+        // 加载群聊ID列表，支持新格式和旧格式
+        this.oneBotGroupIds = loadGroupIds(config, logger);
+        
+        // 加载私聊ID列表，支持新格式和旧格式
+        this.oneBotPrivateIds = loadPrivateIds(config, logger);
+        
+        this.oneBotConnectTimeout = config.getInt("onebot.connect-timeout", 10);
+        this.oneBotRequestTimeout = config.getInt("onebot.request-timeout", 10);
+        this.oneBotHeartbeatInterval = config.getInt("onebot.heartbeat-interval", 30);
+        this.oneBotDigestWindowSeconds = config.getInt("onebot.digest.window-seconds", 10);
+        this.oneBotDigestMaxPlayers = config.getInt("onebot.digest.max-players", 10);
+        this.oneBotRateLimitPerMinute = config.getInt("onebot.rate-limit.per-minute", 20);
+        this.oneBotRateLimitBurst = config.getInt("onebot.rate-limit.burst", 5);
+        this.oneBotQueueCapacity = config.getInt("onebot.queue.capacity", 100);
+        this.oneBotQueueOverflowPolicy = config.getString("onebot.queue.overflow-policy", "drop-oldest");
+        this.oneBotQueueBlockTimeout = config.getInt("onebot.queue.block-timeout", 1000);
+        
+        this.autoReloadEnabled = config.getBoolean("auto-reload.enabled", false);
+        this.autoReloadDebounceMillis = config.getInt("auto-reload.debounce-millis", 1000);
+        
+        this.prometheusEnabled = config.getBoolean("metrics.prometheus.enabled", false);
+        this.prometheusBindAddress = config.getString("metrics.prometheus.bind-address", "127.0.0.1");
+        this.prometheusPort = config.getInt("metrics.prometheus.port", 9940);
+        
+        this.messageTemplates = MessageTemplates.compile(config);
+    }
+    
+    /**
+     * 加载群聊ID列表
+     * 支持新的 group-ids 列表格式和旧的 group-id 单个值格式
+     */
+    private static List<Long> loadGroupIds(FileConfiguration config, Logger logger) {
+        List<Long> groupIds = new ArrayList<>();
+        
+        // 首先尝试读取新格式 group-ids 列表
+        if (config.isList("onebot.group-ids")) {
+            List<?> configList = config.getList("onebot.group-ids");
+            if (configList != null) {
+                for (Object item : configList) {
+                    try {
+                        long groupId = Long.parseLong(item.toString());
+                        if (groupId > 0) { // 只添加有效的群聊ID
+                            groupIds.add(groupId);
+                        }
+                    } catch (NumberFormatException e) {
+                        logger.warning("无效的群聊ID: " + item);
+                    }
+                }
+            }
+        }
+        
+        // 如果没有新格式配置，尝试读取旧格式 group-id 兼容性
+        if (groupIds.isEmpty() && config.contains("onebot.group-id")) {
+            long oldGroupId = config.getLong("onebot.group-id", 0);
+            if (oldGroupId > 0) {
+                groupIds.add(oldGroupId);
+                logger.info("检测到旧格式的群聊ID配置，建议更新为 group-ids 列表格式");
+            }
+        }
+        
+        return List.copyOf(groupIds);
+    }
+    
+    /**
+     * 加载私聊ID列表
+     * 支持新的 private-ids 列表格式和旧的 private-id 单个值格式
+     */
+    private static List<Long> loadPrivateIds(FileConfiguration config, Logger logger) {
+        List<Long> privateIds = new ArrayList<>();
+        
+        // 首先尝试读取新格式 private-ids 列表
+        if (config.isList("onebot.private-ids")) {
+            List<?> configList = config.getList("onebot.private-ids");
+            if (configList != null) {
+                for (Object item : configList) {
+                    try {
+                        long privateId = Long.parseLong(item.toString());
+                        if (privateId > 0) { // 只添加有效的私聊ID
+                            privateIds.add(privateId);
+                        }
+                    } catch (NumberFormatException e) {
+                        logger.warning("无效的私聊ID: " + item);
+                    }
+                }
+            }
+        }
+        
+        // 如果没有新格式配置，尝试读取旧格式 private-id 兼容性
+        if (privateIds.isEmpty() && config.contains("onebot.private-id")) {
+            long oldPrivateId = config.getLong("onebot.private-id", 0);
+            if (oldPrivateId > 0) {
+                privateIds.add(oldPrivateId);
+                logger.info("检测到旧格式的私聊ID配置，建议更新为 private-ids 列表格式");
+            }
+        }
+        
+        return List.copyOf(privateIds);
+    }
+    
+    /**
+     * 验证配置值的合理性
+     * 
+     * @param logger 输出无效配置项的日志记录器
+     * @return 配置是否有效
+     */
+    public boolean validate(Logger logger) {
+        boolean valid = true;
+        
+        if (timeWindow <= 0) {
+            logger.warning("检测时间窗口必须大于0，当前值: " + timeWindow);
+            valid = false;
+        }
+        
+        if (heightThreshold < 0) {
+            logger.warning("高度阈值不能为负数，当前值: " + heightThreshold);
+            valid = false;
+        }
+        
+        if (cooldownSeconds < 0) {
+            logger.warning("冷却时间不能为负数，当前值: " + cooldownSeconds);
+            valid = false;
+        }
+        
+        if (continuousThreshold <= 0) {
+            logger.warning("连续检测次数阈值必须大于0，当前值: " + continuousThreshold);
+            valid = false;
+        }
+        
+        if (banDurationMinutes <= 0) {
+            logger.warning("封禁时长必须大于0，当前值: " + banDurationMinutes);
+            valid = false;
+        }
+        
+        if (!"player-chunk".equals(attributionMode) && !"nearest".equals(attributionMode)) {
+            logger.warning("区块归属方式必须为 player-chunk 或 nearest，当前值: " + attributionMode);
+            valid = false;
+        }
+        
+        if (!"websocket".equals(oneBotTransport) && !"http".equals(oneBotTransport)) {
+            logger.warning("OneBot通信方式必须为 websocket 或 http，当前值: " + oneBotTransport);
+            valid = false;
+        }
+        
+        if (oneBotRequestTimeout <= 0) {
+            logger.warning("OneBot请求超时时间必须大于0，当前值: " + oneBotRequestTimeout);
+            valid = false;
+        }
+        
+        if (oneBotHeartbeatInterval <= 0) {
+            logger.warning("OneBot心跳间隔必须大于0，当前值: " + oneBotHeartbeatInterval);
+            valid = false;
+        }
+        
+        if (oneBotDigestWindowSeconds < 0) {
+            logger.warning("OneBot汇总窗口不能为负数，当前值: " + oneBotDigestWindowSeconds);
+            valid = false;
+        }
+        
+        if (oneBotDigestMaxPlayers <= 0) {
+            logger.warning("OneBot汇总玩家数上限必须大于0，当前值: " + oneBotDigestMaxPlayers);
+            valid = false;
+        }
+        
+        if (oneBotRateLimitPerMinute < 0) {
+            logger.warning("OneBot每分钟发送次数不能为负数，当前值: " + oneBotRateLimitPerMinute);
+            valid = false;
+        }
+        
+        if (oneBotRateLimitBurst <= 0) {
+            logger.warning("OneBot突发发送次数必须大于0，当前值: " + oneBotRateLimitBurst);
+            valid = false;
+        }
+        
+        if (oneBotQueueCapacity <= 0) {
+            logger.warning("OneBot发送队列容量必须大于0，当前值: " + oneBotQueueCapacity);
+            valid = false;
+        }
+        
+        if (NotificationQueue.OverflowPolicy.parse(oneBotQueueOverflowPolicy) == null) {
+            logger.warning("OneBot发送队列溢出策略必须为 drop-oldest、drop-duplicates 或 block，当前值: " + oneBotQueueOverflowPolicy);
+            valid = false;
+        }
+        
+        if (oneBotQueueBlockTimeout < 0) {
+            logger.warning("OneBot发送队列等待时间不能为负数，当前值: " + oneBotQueueBlockTimeout);
+            valid = false;
+        }
+        
+        if (autoReloadDebounceMillis < 0) {
+            logger.warning("自动重载等待时间不能为负数，当前值: " + autoReloadDebounceMillis);
+            valid = false;
+        }
+        
+        if (prometheusPort < 1 || prometheusPort > 65535) {
+            logger.warning("Prometheus导出端口必须在1到65535之间，当前值: " + prometheusPort);
+            valid = false;
+        }
+        
+        return valid;
+    }
+    
+    /**
+     * 比较两个快照，找出发生变化的配置分组
+     * 消息模板不参与比较，它们总是随快照整体替换
+     * 
+     * @param previous 之前的快照
+     * @return 发生变化的分组
+     */
+    public EnumSet<Section> diff(ConfigSnapshot previous) {
+        EnumSet<Section> changed = EnumSet.noneOf(Section.class);
+        
+        if (timeWindow != previous.timeWindow) {
+            changed.add(Section.DETECTION_WINDOW);
+        }
+        
+        if (heightFilterEnabled != previous.heightFilterEnabled
+                || heightThreshold != previous.heightThreshold
+                || cooldownSeconds != previous.cooldownSeconds
+                || continuousThreshold != previous.continuousThreshold
+                || disableDetectionInWater != previous.disableDetectionInWater
+                || dimensionSwitchCooldownSeconds != previous.dimensionSwitchCooldownSeconds
+                || !attributionMode.equals(previous.attributionMode)) {
+            changed.add(Section.DETECTION);
+        }
+        
+        if (banDurationMinutes != previous.banDurationMinutes) {
+            changed.add(Section.BAN);
+        }
+        
+        if (debugEnabled != previous.debugEnabled || debugVerbose != previous.debugVerbose) {
+            changed.add(Section.DEBUG);
+        }
+        
+        if (oneBotEnabled != previous.oneBotEnabled
+                || !Objects.equals(oneBotTransport, previous.oneBotTransport)
+                || !Objects.equals(oneBotWebSocketUrl, previous.oneBotWebSocketUrl)
+                || !Objects.equals(oneBotHttpUrl, previous.oneBotHttpUrl)
+                || !Objects.equals(oneBotAccessToken, previous.oneBotAccessToken)
+                || oneBotConnectTimeout != previous.oneBotConnectTimeout
+                || oneBotHeartbeatInterval != previous.oneBotHeartbeatInterval) {
+            changed.add(Section.ONEBOT_CONNECTION);
+        }
+        
+        if (!oneBotGroupIds.equals(previous.oneBotGroupIds)
+                || !oneBotPrivateIds.equals(previous.oneBotPrivateIds)
+                || oneBotRequestTimeout != previous.oneBotRequestTimeout
+                || oneBotDigestWindowSeconds != previous.oneBotDigestWindowSeconds
+                || oneBotDigestMaxPlayers != previous.oneBotDigestMaxPlayers
+                || oneBotRateLimitPerMinute != previous.oneBotRateLimitPerMinute
+                || oneBotRateLimitBurst != previous.oneBotRateLimitBurst
+                || oneBotQueueCapacity != previous.oneBotQueueCapacity
+                || !Objects.equals(oneBotQueueOverflowPolicy, previous.oneBotQueueOverflowPolicy)
+                || oneBotQueueBlockTimeout != previous.oneBotQueueBlockTimeout) {
+            changed.add(Section.ONEBOT_DELIVERY);
+        }
+        
+        if (autoReloadEnabled != previous.autoReloadEnabled
+                || autoReloadDebounceMillis != previous.autoReloadDebounceMillis) {
+            changed.add(Section.AUTO_RELOAD);
+        }
+        
+        if (prometheusEnabled != previous.prometheusEnabled
+                || !Objects.equals(prometheusBindAddress, previous.prometheusBindAddress)
+                || prometheusPort != previous.prometheusPort) {
+            changed.add(Section.METRICS);
+        }
+        
+        return changed;
+    }
+    
+    /**
+     * 获取消息
+     * 
+     * @param path 消息路径
+     * @param defaultValue 默认值
+     * @return 消息内容
+     */
+    public String getMessage(String path, String defaultValue) {
+        return messageTemplates.getMessage(path, defaultValue).getSource();
+    }
+    
+    /**
+     * 获取消息模板
+     * 
+     * @param path 消息路径
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public MessageTemplate getMessageTemplate(String path, String defaultValue) {
+        return messageTemplates.getMessage(path, defaultValue);
+    }
+    
+    /**
+     * 获取消息（带颜色代码转换）
+     * 
+     * @param path 消息路径
+     * @param defaultValue 默认值
+     * @return 处理后的消息内容
+     */
+    public String getFormattedMessage(String path, String defaultValue) {
+        return messageTemplates.getFormattedMessage(path, defaultValue).getSource();
+    }
+    
+    /**
+     * 获取消息模板（带颜色代码转换）
+     * 
+     * @param path 消息路径
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public MessageTemplate getFormattedMessageTemplate(String path, String defaultValue) {
+        return messageTemplates.getFormattedMessage(path, defaultValue);
+    }
+    
+
+    public int getTimeWindow() {
+        return timeWindow;
+    }
+    
+    public boolean isHeightFilterEnabled() {
+        return heightFilterEnabled;
+    }
+    
+    public int getHeightThreshold() {
+        return heightThreshold;
+    }
+    
+    public int getCooldownSeconds() {
+        return cooldownSeconds;
+    }
+    
+    public int getContinuousThreshold() {
+        return continuousThreshold;
+    }
+    
+    public int getBanDurationMinutes() {
+        return banDurationMinutes;
+    }
+    
+    public boolean isDebugEnabled() {
+        return debugEnabled;
+    }
+    
+    public boolean isDebugVerbose() {
+        return debugVerbose;
+    }
+    
+    public boolean isDisableDetectionInWater() {
+        return disableDetectionInWater;
+    }
+
+    public int getDimensionSwitchCooldownSeconds() {
+        return dimensionSwitchCooldownSeconds;
+    }
+    
+    public String getAttributionMode() {
+        return attributionMode;
+    }
+    
+    /**
+     * 是否按区块实际发送给的玩家归属区块生成
+     * 
+     * @return 是否为 player-chunk 模式
+     */
+    public boolean isPlayerChunkAttribution() {
+        return "player-chunk".equals(attributionMode);
+    }
+    
+
+    public boolean isOneBotEnabled() {
+        return oneBotEnabled;
+    }
+    
+    public String getOneBotTransport() {
+        return oneBotTransport;
+    }
+    
+    public String getOneBotWebSocketUrl() {
+        return oneBotWebSocketUrl;
+    }
+    
+    public String getOneBotHttpUrl() {
+        return oneBotHttpUrl;
+    }
+    
+    public String getOneBotAccessToken() {
+        return oneBotAccessToken;
+    }
+    
+    /**
+     * 获取群聊ID列表
+     * 
+     * @return 群聊ID列表（只读）
+     */
+    public List<Long> getOneBotGroupIds() {
+        return oneBotGroupIds;
+    }
+    
+    /**
+     * 获取私聊ID列表
+     * 
+     * @return 私聊ID列表（只读）
+     */
+    public List<Long> getOneBotPrivateIds() {
+        return oneBotPrivateIds;
+    }
+    
+    /**
+     * 获取第一个群聊ID（向下兼容方法）
+     * 
+     * @return 第一个群聊ID，没有则返回0
+     * @deprecated 建议使用 getOneBotGroupIds() 获取完整列表
+     */
+    @Deprecated
+    public long getOneBotGroupId() {
+        return oneBotGroupIds.isEmpty() ? 0 : oneBotGroupIds.get(0);
+    }
+    
+    /**
+     * 获取第一个私聊ID（向下兼容方法）
+     * 
+     * @return 第一个私聊ID，没有则返回0
+     * @deprecated 建议使用 getOneBotPrivateIds() 获取完整列表
+     */
+    @Deprecated
+    public long getOneBotPrivateId() {
+        return oneBotPrivateIds.isEmpty() ? 0 : oneBotPrivateIds.get(0);
+    }
+    
+    public int getOneBotConnectTimeout() {
+        return oneBotConnectTimeout;
+    }
+    
+    public int getOneBotRequestTimeout() {
+        return oneBotRequestTimeout;
+    }
+    
+    public int getOneBotHeartbeatInterval() {
+        return oneBotHeartbeatInterval;
+    }
+    
+    public int getOneBotDigestWindowSeconds() {
+        return oneBotDigestWindowSeconds;
+    }
+    
+    public int getOneBotDigestMaxPlayers() {
+        return oneBotDigestMaxPlayers;
+    }
+    
+    public int getOneBotRateLimitPerMinute() {
+        return oneBotRateLimitPerMinute;
+    }
+    
+    public int getOneBotRateLimitBurst() {
+        return oneBotRateLimitBurst;
+    }
+    
+    public int getOneBotQueueCapacity() {
+        return oneBotQueueCapacity;
+    }
+    
+    public NotificationQueue.OverflowPolicy getOneBotQueueOverflowPolicy() {
+        NotificationQueue.OverflowPolicy policy = NotificationQueue.OverflowPolicy.parse(oneBotQueueOverflowPolicy);
+        return policy != null ? policy : NotificationQueue.OverflowPolicy.DROP_OLDEST;
+    }
+    
+    public int getOneBotQueueBlockTimeout() {
+        return oneBotQueueBlockTimeout;
+    }
+    
+    public boolean isAutoReloadEnabled() {
+        return autoReloadEnabled;
+    }
+    
+    public int getAutoReloadDebounceMillis() {
+        return autoReloadDebounceMillis;
+    }
+    
+    public boolean isPrometheusEnabled() {
+        return prometheusEnabled;
+    }
+    
+    public String getPrometheusBindAddress() {
+        return prometheusBindAddress;
+    }
+    
+    public int getPrometheusPort() {
+        return prometheusPort;
+    }
+    
+    /**
+     * 获取OneBot消息
+     * 支持从列表中随机选择消息，同时保持向下兼容性
+     * 
+     * @param messageType 消息类型
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public String getOneBotMessage(String messageType, String defaultValue) {
+        return messageTemplates.getOneBotMessage(messageType, defaultValue).getSource();
+    }
+    
+    /**
+     * 获取OneBot消息模板
+     * 配置为列表时每次随机选择一个
+     * 
+     * @param messageType 消息类型
+     * @param defaultValue 默认值
+     * @return 消息模板
+     */
+    public MessageTemplate getOneBotMessageTemplate(String messageType, String defaultValue) {
+        return messageTemplates.getOneBotMessage(messageType, defaultValue);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,164 @@
+package com.whitelu.antipaotu.config;
+
+import com.whitelu.antipaotu.AntiPaotuPlugin;
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配置文件监视器
+ * 监视插件数据目录中的 config.yml，文件在等待时间内不再变化后在监视线程上解析和验证，
+ * 验证通过后在全局线程上交给 ConfigManager 按变化的分组应用；验证失败时保留当前配置。
+ * 解析与命令重载一样使用插件 jar 内的默认值，应用时同时刷新 plugin.getConfig()
+ */
+public class ConfigWatcher {
+
+    private static final String CONFIG_FILE_NAME = "config.yml";
+
+    private final AntiPaotuPlugin plugin;
+    private final Path directory;
+
+    // 以下字段由 this 保护
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(AntiPaotuPlugin plugin) {
+        this.plugin = plugin;
+        this.directory = plugin.getDataFolder().toPath();
+    }
+
+    /**
+     * 按配置启动或停止监视
+     *
+     * @param config 当前配置
+     */
+    public synchronized void update(ConfigSnapshot config) {
+        if (config.isAutoReloadEnabled()) {
+            start();
+        } else {
+            stop();
+        }
+    }
+
+    /**
+     * 开始监视，已在监视时不做任何事
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法监视配置文件，自动重载未启用: " + e.getMessage());
+            closeWatchService();
+            return;
+        }
+
+        WatchService service = watchService;
+        thread = new Thread(() -> watchLoop(service), "AntiPaotu-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("已开始监视配置文件: " + directory.resolve(CONFIG_FILE_NAME));
+        }
+    }
+
+    /**
+     * 停止监视
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        closeWatchService();
+        thread.interrupt();
+        thread = null;
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // 已经关闭
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * 监视循环：收到修改事件后继续等待，直到等待时间内没有新的修改再重载，
+     * 编辑器保存时的多次写入只触发一次重载
+     */
+    private void watchLoop(WatchService service) {
+        boolean dirty = false;
+        try {
+            while (true) {
+                WatchKey key;
+                if (dirty) {
+                    long debounceMillis = plugin.getConfigManager().getSnapshot().getAutoReloadDebounceMillis();
+                    key = service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    key = service.take();
+                }
+
+                if (key == null) {
+                    dirty = false;
+                    reloadFromFile();
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path path && CONFIG_FILE_NAME.equals(path.toString())) {
+                        dirty = true;
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 监视已停止
+        }
+    }
+
+    /**
+     * 解析并验证配置文件，通过后在全局线程上应用
+     */
+    private void reloadFromFile() {
+        String contents;
+        ConfigSnapshot loaded;
+        try {
+            contents = Files.readString(directory.resolve(CONFIG_FILE_NAME), StandardCharsets.UTF_8);
+            loaded = plugin.getConfigManager().parse(contents);
+        } catch (IOException | InvalidConfigurationException e) {
+            plugin.getLogger().warning("配置文件已修改但无法解析，保留当前配置: " + e.getMessage());
+            return;
+        }
+
+        if (!loaded.validate(plugin.getLogger())) {
+            plugin.getLogger().warning("配置文件已修改但验证失败，保留当前配置");
+            return;
+        }
+
+        plugin.getSchedulerUtil().runGlobal(() -> {
+            if (plugin.getConfigManager().applyFile(contents, loaded)) {
+                plugin.getLogger().info("检测到配置文件修改，已自动重载");
+            }
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package com.whitelu.antipaotu.config;
+
+import com.whitelu.antipaotu.util.MessageTemplate;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一次配置加载中编译好的全部消息模板
+ * 属于一个 ConfigSnapshot，重载时随快照整体替换，读取时不会看到新旧混合的模板
+ */
+public final class MessageTemplates {
+
+    // messages 下的消息，按相对路径索引
+    private final Map<String, MessageTemplate> messages;
+    // 同上，已将 & 颜色代码转换为 §
+    private final Map<String, MessageTemplate> formatted;
+    // onebot.messages 下的消息，列表形式的配置保存全部候选
+    private final Map<String, MessageTemplate[]> oneBotMessages;
+    // 配置中没有的消息使用调用方的默认值，编译结果缓存在这里
+    private final Map<String, MessageTemplate> defaults;
+
+    private MessageTemplates() {
+        this.messages = new HashMap<>();
+        this.formatted = new HashMap<>();
+        this.oneBotMessages = new HashMap<>();
+        this.defaults = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 编译配置中的全部消息
+     *
+     * @param config 配置
+     * @return 模板集合
+     */
+    public static MessageTemplates compile(FileConfiguration config) {
+        MessageTemplates templates = new MessageTemplates();
+
+        ConfigurationSection messageSection = config.getConfigurationSection("messages");
+        if (messageSection != null) {
+            for (String path : messageSection.getKeys(true)) {
+                if (messageSection.isString(path)) {
+                    String text = messageSection.getString(path);
+                    templates.messages.put(path, MessageTemplate.compile(text));
+                    templates.formatted.put(path, MessageTemplate.compile(colorize(text)));
+                }
+            }
+        }
+
+        ConfigurationSection oneBotSection = config.getConfigurationSection("onebot.messages");
+        if (oneBotSection != null) {
+            for (String type : oneBotSection.getKeys(false)) {
+                if (oneBotSection.isList(type)) {
+                    List<String> list = oneBotSection.getStringList(type);
+                    if (!list.isEmpty()) {
+                        MessageTemplate[] choices = new MessageTemplate[list.size()];
+                        for (int i = 0; i < choices.length; i++) {
+                            choices[i] = MessageTemplate.compile(list.get(i));
+                        }
+                        templates.oneBotMessages.put(type, choices);
+                    }
+                } else {
+                    String text = oneBotSection.getString(type);
+                    if (text != null && !text.isEmpty()) {
+                        templates.oneBotMessages.put(type, new MessageTemplate[] { MessageTemplate.compile(text) });
+                    }
+                }
+            }
+        }
+
+        return templates;
+    }
+
+    /**
+     * 获取消息模板
+     *
+     * @param path messages 下的路径
+     * @param defaultValue 默认值
+     * @return 模板
+     */
+    public MessageTemplate getMessage(String path, String defaultValue) {
+        MessageTemplate template = messages.get(path);
+        return template != null ? template : getDefault(defaultValue);
+    }
+
+    /**
+     * 获取已转换颜色代码的消息模板
+     *
+     * @param path messages 下的路径
+     * @param defaultValue 默认值
+     * @return 模板
+     */
+    public MessageTemplate getFormattedMessage(String path, String defaultValue) {
+        MessageTemplate template = formatted.get(path);
+        return template != null ? template : getDefault(colorize(defaultValue));
+    }
+
+    /**
+     * 获取OneBot消息模板，配置为列表时随机选择一个
+     *
+     * @param type 消息类型
+     * @param defaultValue 默认值
+     * @return 模板
+     */
+    public MessageTemplate getOneBotMessage(String type, String defaultValue) {
+        MessageTemplate[] choices = oneBotMessages.get(type);
+        if (choices == null) {
+            return getDefault(defaultValue);
+        }
+        return choices.length == 1 ? choices[0] : choices[ThreadLocalRandom.current().nextInt(choices.length)];
+    }
+
+    private MessageTemplate getDefault(String defaultValue) {
+        return defaults.computeIfAbsent(defaultValue, MessageTemplate::compile);
+    }
+
+    private static String colorize(String text) {
+        return text.replace("&", "§");
+    }
+}
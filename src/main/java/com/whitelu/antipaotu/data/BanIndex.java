@@ -0,0 +1,118 @@
+package com.whitelu.antipaotu.data;
+
+import com.whitelu.antipaotu.util.MonotonicClock;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 封禁查询索引
+ * 不可变的开放寻址表，按 UUID 的两个 long 保存封禁到期的时钟值，
+ * 封禁变化时整体重建并替换引用，查询线程（包括异步登录线程）无需加锁
+ */
+public final class BanIndex {
+
+    /**
+     * 空索引
+     */
+    public static final BanIndex EMPTY = new BanIndex(1);
+
+    private final long[] mostBits;
+    private final long[] leastBits;
+    // 到期时钟值，NEVER 表示空槽
+    private final long[] expiries;
+    private final int mask;
+    private final int size;
+
+    private BanIndex(int capacity) {
+        this.mostBits = new long[capacity];
+        this.leastBits = new long[capacity];
+        this.expiries = new long[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    private BanIndex(Map<UUID, Long> entries) {
+        int capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2 - 1)) << 1;
+        this.mostBits = new long[capacity];
+        this.leastBits = new long[capacity];
+        this.expiries = new long[capacity];
+        this.mask = capacity - 1;
+
+        int count = 0;
+        for (Map.Entry<UUID, Long> entry : entries.entrySet()) {
+            long expiry = entry.getValue();
+            if (expiry <= MonotonicClock.NEVER) {
+                continue;
+            }
+
+            UUID playerId = entry.getKey();
+            int slot = slot(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            while (expiries[slot] != MonotonicClock.NEVER) {
+                slot = (slot + 1) & mask;
+            }
+            mostBits[slot] = playerId.getMostSignificantBits();
+            leastBits[slot] = playerId.getLeastSignificantBits();
+            expiries[slot] = expiry;
+            count++;
+        }
+        this.size = count;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param entries 玩家ID到封禁到期时钟值的映射
+     * @return 新的索引
+     */
+    public static BanIndex of(Map<UUID, Long> entries) {
+        return entries.isEmpty() ? EMPTY : new BanIndex(entries);
+    }
+
+    /**
+     * 获取玩家的封禁到期时钟值
+     *
+     * @param playerId 玩家ID
+     * @return 到期时钟值，未被封禁时返回 MonotonicClock.NEVER
+     */
+    public long getExpiry(UUID playerId) {
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        int slot = slot(most, least);
+        while (expiries[slot] != MonotonicClock.NEVER) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return expiries[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MonotonicClock.NEVER;
+    }
+
+    /**
+     * 检查玩家在指定时刻是否处于封禁中
+     *
+     * @param playerId 玩家ID
+     * @param now 当前时钟值
+     * @return 是否被封禁
+     */
+    public boolean isBanned(UUID playerId, long now) {
+        return getExpiry(playerId) > now;
+    }
+
+    /**
+     * 获取索引中的记录数量（包括可能已到期的记录）
+     *
+     * @return 记录数量
+     */
+    public int size() {
+        return size;
+    }
+
+    private int slot(long most, long least) {
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,350 @@
+package com.whitelu.antipaotu.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 封禁记录持久化存储
+ * 由一个只追加的日志文件和定期压缩生成的快照文件组成：
+ * 加载时读入快照再重放日志，封禁和解封只向日志追加一条记录，
+ * 所有写入都在单独的写线程上执行，调用线程不会等待磁盘 I/O
+ */
+public class BanStore {
+
+    private static final int SNAPSHOT_MAGIC = 0x41505342; // "APSB"
+    private static final int LOG_MAGIC = 0x4150424C;      // "APBL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte OP_BAN = 1;
+    private static final byte OP_UNBAN = 2;
+
+    /**
+     * 日志记录数达到该值时自动压缩为快照
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Logger logger;
+    private final Supplier<Collection<StoredBan>> snapshotSource;
+    private final ExecutorService writer;
+
+    // close() 之后不再从 snapshotSource 读取，最终快照由调用方传入
+    private volatile boolean closing;
+
+    // 以下字段只在写线程上访问
+    private FileChannel logChannel;
+    private int logRecords;
+
+    /**
+     * @param directory 存储目录
+     * @param logger 日志记录器
+     * @param snapshotSource 压缩时提供当前全部封禁记录
+     */
+    public BanStore(File directory, Logger logger, Supplier<Collection<StoredBan>> snapshotSource) {
+        this.snapshotFile = directory.toPath().resolve("bans.snapshot");
+        this.logFile = directory.toPath().resolve("bans.log");
+        this.logger = logger;
+        this.snapshotSource = snapshotSource;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AntiPaotu-BanStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 加载全部封禁记录并打开日志用于追加
+     * 在插件启用时调用一次
+     *
+     * @return 玩家ID到封禁记录的映射
+     */
+    public Map<UUID, StoredBan> load() {
+        Map<UUID, StoredBan> bans = new LinkedHashMap<>();
+        long start = System.nanoTime();
+
+        try {
+            Files.createDirectories(logFile.getParent());
+            readFile(snapshotFile, SNAPSHOT_MAGIC, bans);
+            long logEnd = readFile(logFile, LOG_MAGIC, bans);
+            openLog(logEnd);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "加载封禁记录失败", e);
+        }
+
+        logger.info("已加载 " + bans.size() + " 条封禁记录，耗时 " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        return bans;
+    }
+
+    /**
+     * 追加一条封禁记录
+     *
+     * @param ban 封禁记录
+     */
+    public void appendBan(StoredBan ban) {
+        submit(() -> append(encode(OP_BAN, ban.playerId, ban.bannedAt, ban.expiresAt, ban.playerName)));
+    }
+
+    /**
+     * 追加一条解封记录
+     *
+     * @param playerId 玩家ID
+     */
+    public void appendUnban(UUID playerId) {
+        submit(() -> append(encode(OP_UNBAN, playerId, 0L, 0L, "")));
+    }
+
+    /**
+     * 将当前全部封禁记录写为快照并清空日志
+     */
+    public void compact() {
+        submit(() -> {
+            // 关闭时排在最终快照之前的压缩不再读取，避免读到调用方已清空的数据
+            if (!closing) {
+                writeSnapshot(new ArrayList<>(snapshotSource.get()));
+            }
+        });
+    }
+
+    /**
+     * 写入最终快照并关闭存储
+     * 快照内容在调用线程上确定，之后一直等待写线程完成全部写入，
+     * 返回后调用方可以安全地清空内存中的记录
+     *
+     * @param finalBans 当前全部封禁记录
+     */
+    public void close(Collection<StoredBan> finalBans) {
+        Collection<StoredBan> bans = new ArrayList<>(finalBans);
+        closing = true;
+        submit(() -> writeSnapshot(bans));
+        // 日志通道在写线程上关闭，排在所有写入之后
+        submit(this::closeLog);
+        writer.shutdown();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeLog() throws IOException {
+        if (logChannel != null) {
+            logChannel.close();
+            logChannel = null;
+        }
+    }
+
+    private void submit(IoTask task) {
+        if (writer.isShutdown()) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "写入封禁记录失败", e);
+            }
+        });
+    }
+
+    /**
+     * 读取快照或日志文件并应用到映射中
+     *
+     * @return 最后一条完整记录之后的位置，文件不存在或无效时返回0
+     */
+    private long readFile(Path file, int magic, Map<UUID, StoredBan> bans) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return 0;
+            }
+
+            // 文件只有几KB，直接读入堆内存；不使用内存映射，
+            // 否则 Windows 上映射未释放前无法截断日志或替换快照
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满整个文件
+            }
+            buffer.flip();
+            int fileMagic = buffer.getInt();
+            int version = buffer.getInt();
+            if (fileMagic != magic || version != FORMAT_VERSION) {
+                logger.warning("封禁记录文件格式无法识别，已忽略: " + file.getFileName());
+                return 0;
+            }
+
+            int validEnd = buffer.position();
+            try {
+                while (buffer.hasRemaining()) {
+                    byte op = buffer.get();
+                    UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+                    long bannedAt = buffer.getLong();
+                    long expiresAt = buffer.getLong();
+                    byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                    buffer.get(name);
+
+                    if (op == OP_BAN) {
+                        bans.put(playerId, new StoredBan(playerId, new String(name, StandardCharsets.UTF_8), 
+                                                     bannedAt, expiresAt));
+                    } else if (op == OP_UNBAN) {
+                        bans.remove(playerId);
+                    } else {
+                        break;
+                    }
+                    validEnd = buffer.position();
+                }
+            } catch (BufferUnderflowException e) {
+                // 崩溃时写了一半的最后一条记录，丢弃
+                logger.warning("封禁记录文件末尾存在不完整的记录，已丢弃: " + file.getFileName());
+            }
+            return validEnd;
+        }
+    }
+
+    private void openLog(long validEnd) throws IOException {
+        logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (validEnd < HEADER_SIZE) {
+            resetLog();
+        } else {
+            logChannel.truncate(validEnd);
+            logChannel.position(validEnd);
+        }
+    }
+
+    private void resetLog() throws IOException {
+        logChannel.truncate(0);
+        logChannel.position(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).flip();
+        writeFully(logChannel, header);
+        logChannel.force(false);
+        logRecords = 0;
+    }
+
+    private void append(ByteBuffer record) throws IOException {
+        if (logChannel == null) {
+            return;
+        }
+
+        writeFully(logChannel, record);
+        logChannel.force(false);
+
+        if (++logRecords >= COMPACT_THRESHOLD && !closing) {
+            writeSnapshot(new ArrayList<>(snapshotSource.get()));
+        }
+    }
+
+    private void writeSnapshot(Collection<StoredBan> bans) throws IOException {
+        // 加载失败时不覆盖磁盘上的记录
+        if (logChannel == null) {
+            return;
+        }
+
+        Path tempFile = snapshotFile.resolveSibling("bans.snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(SNAPSHOT_MAGIC).putInt(FORMAT_VERSION).flip();
+            writeFully(channel, header);
+            for (StoredBan ban : bans) {
+                writeFully(channel, encode(OP_BAN, ban.playerId, ban.bannedAt, ban.expiresAt, ban.playerName));
+            }
+            channel.force(true);
+        }
+
+        // 快照替换完成后再清空日志，中途崩溃时仍可从旧快照加日志恢复
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        resetLog();
+    }
+
+    private static ByteBuffer encode(byte op, UUID playerId, long bannedAt, long expiresAt, String playerName) {
+        byte[] name = playerName != null ? playerName.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 16 + 8 + 8 + 2 + name.length);
+        buffer.put(op)
+              .putLong(playerId.getMostSignificantBits())
+              .putLong(playerId.getLeastSignificantBits())
+              .putLong(bannedAt)
+              .putLong(expiresAt)
+              .putShort((short) name.length)
+              .put(name)
+              .flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * 持久化的封禁记录，时间为 Unix 毫秒时间戳
+     */
+    public static final class StoredBan {
+        private final UUID playerId;
+        private final String playerName;
+        private final long bannedAt;
+        private final long expiresAt;
+
+        public StoredBan(UUID playerId, String playerName, long bannedAt, long expiresAt) {
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.bannedAt = bannedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public long getBannedAt() {
+            return bannedAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
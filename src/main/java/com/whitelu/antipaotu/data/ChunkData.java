@@ -1,28 +1,56 @@
 package com.whitelu.antipaotu.data;
 
+import com.whitelu.antipaotu.util.MonotonicClock;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 
-import java.time.LocalDateTime;
-import java.util.Objects;
 import java.util.UUID;
 
 /**
  * 区块数据模型类
  * 用于存储区块生成的相关信息
+ * 只保存坐标、世界索引、玩家索引和时间等基本类型字段，
+ * 世界和玩家信息通过 WorldRegistry / PlayerRegistry 按需取回
 
  */
 public class ChunkData {
     
     private final int chunkX;
     private final int chunkZ;
-    private final String worldName;
-    private final UUID worldId;
-    private final LocalDateTime generationTime;
-    private final UUID triggerPlayerId;
-    private final String triggerPlayerName;
-    private final Location playerLocationAtGeneration;
+    private final short worldIndex;
+    private final int triggerPlayerIndex;
+    private final long generationTime;
+    
+    // 玩家在区块生成时的方块坐标
+    private final int playerX;
+    private final int playerY;
+    private final int playerZ;
+    
+    /**
+     * 构造函数
+     * 
+     * @param worldIndex 世界索引
+     * @param chunkX 区块X坐标
+     * @param chunkZ 区块Z坐标
+     * @param triggerPlayerIndex 触发玩家的索引
+     * @param generationTime 生成时间（MonotonicClock 时钟值）
+     * @param playerX 玩家方块X坐标
+     * @param playerY 玩家方块Y坐标
+     * @param playerZ 玩家方块Z坐标
+     */
+    public ChunkData(short worldIndex, int chunkX, int chunkZ, int triggerPlayerIndex, long generationTime,
+                    int playerX, int playerY, int playerZ) {
+        this.worldIndex = worldIndex;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.triggerPlayerIndex = triggerPlayerIndex;
+        this.generationTime = generationTime;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.playerZ = playerZ;
+    }
     
     /**
      * 构造函数
@@ -33,14 +61,7 @@ public class ChunkData {
      * @param playerLocation 玩家在区块生成时的位置
      */
     public ChunkData(Chunk chunk, UUID triggerPlayerId, String triggerPlayerName, Location playerLocation) {
-        this.chunkX = chunk.getX();
-        this.chunkZ = chunk.getZ();
-        this.worldName = chunk.getWorld().getName();
-        this.worldId = chunk.getWorld().getUID();
-        this.generationTime = LocalDateTime.now();
-        this.triggerPlayerId = triggerPlayerId;
-        this.triggerPlayerName = triggerPlayerName;
-        this.playerLocationAtGeneration = playerLocation.clone();
+        this(chunk.getX(), chunk.getZ(), chunk.getWorld(), triggerPlayerId, triggerPlayerName, playerLocation);
     }
     
     /**
@@ -55,14 +76,9 @@ public class ChunkData {
      */
     public ChunkData(int chunkX, int chunkZ, World world, UUID triggerPlayerId, 
                     String triggerPlayerName, Location playerLocation) {
-        this.chunkX = chunkX;
-        this.chunkZ = chunkZ;
-        this.worldName = world.getName();
-        this.worldId = world.getUID();
-        this.generationTime = LocalDateTime.now();
-        this.triggerPlayerId = triggerPlayerId;
-        this.triggerPlayerName = triggerPlayerName;
-        this.playerLocationAtGeneration = playerLocation.clone();
+        this(WorldRegistry.indexOf(world), chunkX, chunkZ,
+             PlayerRegistry.indexOf(triggerPlayerId, triggerPlayerName), MonotonicClock.nowMillis(),
+             playerLocation.getBlockX(), playerLocation.getBlockY(), playerLocation.getBlockZ());
     }
     
     /**
@@ -72,7 +88,7 @@ public class ChunkData {
      * @return 距离（区块单位）
      */
     public double getDistanceToPlayer(Location playerLocation) {
-        if (!playerLocation.getWorld().getUID().equals(this.worldId)) {
+        if (!playerLocation.getWorld().getUID().equals(getWorldId())) {
             return Double.MAX_VALUE; // 不同世界返回最大值
         }
         
@@ -102,7 +118,16 @@ public class ChunkData {
      * @return 区块标识符
      */
     public String getChunkKey() {
-        return worldName + ":" + chunkX + ":" + chunkZ;
+        return getWorldName() + ":" + chunkX + ":" + chunkZ;
+    }
+    
+    /**
+     * 获取打包后的区块键
+     * 
+     * @return 区块键
+     */
+    public long getKey() {
+        return ChunkStore.key(worldIndex, chunkX, chunkZ);
     }
     
     /**
@@ -116,18 +141,18 @@ public class ChunkData {
         ChunkData chunkData = (ChunkData) obj;
         return chunkX == chunkData.chunkX && 
                chunkZ == chunkData.chunkZ && 
-               Objects.equals(worldId, chunkData.worldId);
+               worldIndex == chunkData.worldIndex;
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(chunkX, chunkZ, worldId);
+        return Long.hashCode(getKey());
     }
     
     @Override
     public String toString() {
-        return String.format("ChunkData{world=%s, x=%d, z=%d, time=%s, player=%s}", 
-                           worldName, chunkX, chunkZ, generationTime, triggerPlayerName);
+        return String.format("ChunkData{world=%s, x=%d, z=%d, time=%d, player=%s}", 
+                           getWorldName(), chunkX, chunkZ, generationTime, getTriggerPlayerName());
     }
     
 
@@ -139,27 +164,40 @@ public class ChunkData {
         return chunkZ;
     }
     
+    public short getWorldIndex() {
+        return worldIndex;
+    }
+    
     public String getWorldName() {
-        return worldName;
+        return WorldRegistry.getWorldName(worldIndex);
     }
     
     public UUID getWorldId() {
-        return worldId;
+        return WorldRegistry.getWorldId(worldIndex);
     }
     
-    public LocalDateTime getGenerationTime() {
+    public long getGenerationTime() {
         return generationTime;
     }
     
+    public int getTriggerPlayerIndex() {
+        return triggerPlayerIndex;
+    }
+    
     public UUID getTriggerPlayerId() {
-        return triggerPlayerId;
+        return PlayerRegistry.getPlayerId(triggerPlayerIndex);
     }
     
     public String getTriggerPlayerName() {
-        return triggerPlayerName;
+        return PlayerRegistry.getPlayerName(triggerPlayerIndex);
     }
     
+    /**
+     * 获取玩家在区块生成时的位置，每次调用创建新的 Location
+     */
     public Location getPlayerLocationAtGeneration() {
-        return playerLocationAtGeneration.clone();
+        UUID worldId = getWorldId();
+        World world = worldId != null ? Bukkit.getWorld(worldId) : null;
+        return new Location(world, playerX + 0.5, playerY, playerZ + 0.5);
     }
 } 
\ No newline at end of file
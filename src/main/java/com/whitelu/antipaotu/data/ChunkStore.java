@@ -0,0 +1,278 @@
+package com.whitelu.antipaotu.data;
+
+import java.util.Arrays;
+
+/**
+ * 区块记录存储
+ * 以打包后的 long 键（世界索引 + 区块X + 区块Z）做开放寻址，
+ * 每条记录只保存生成时间和玩家索引，读写过程不装箱、不拼接字符串。
+ * 全表操作（清理和统计）分段进行，每段只持有锁扫描 SCAN_STEP 个槽位，
+ * 区块生成时的写入最多等待一段，而不是整张表
+ */
+public class ChunkStore {
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 64;
+
+    /**
+     * 全表操作每次持有锁扫描的槽位数
+     */
+    private static final int SCAN_STEP = 1024;
+
+    private long[] keys;
+    private long[] times;
+    private int[] players;
+    private int size;
+    // 每次重新分配数组时递增，分段扫描据此发现表已重建
+    private int generation;
+
+    public ChunkStore() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * 打包区块键
+     * 高16位为世界索引，其余各24位为区块X、Z坐标（覆盖整个世界边界）
+     *
+     * @param worldIndex 世界索引
+     * @param chunkX 区块X坐标
+     * @param chunkZ 区块Z坐标
+     * @return 区块键
+     */
+    public static long key(short worldIndex, int chunkX, int chunkZ) {
+        return ((long) worldIndex << 48)
+             | ((long) (chunkX & 0xFFFFFF) << 24)
+             | (chunkZ & 0xFFFFFF);
+    }
+
+    /**
+     * 从区块键中取出世界索引
+     */
+    public static short worldIndex(long key) {
+        return (short) (key >>> 48);
+    }
+
+    /**
+     * 从区块键中取出区块X坐标
+     */
+    public static int chunkX(long key) {
+        return (int) (key << 16 >> 40);
+    }
+
+    /**
+     * 从区块键中取出区块Z坐标
+     */
+    public static int chunkZ(long key) {
+        return (int) (key << 40 >> 40);
+    }
+
+    /**
+     * 写入或覆盖区块记录
+     *
+     * @param key 区块键
+     * @param time 生成时间
+     * @param playerIndex 触发玩家索引
+     */
+    public synchronized void put(long key, long time, int playerIndex) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                times[slot] = time;
+                players[slot] = playerIndex;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        times[slot] = time;
+        players[slot] = playerIndex;
+        size++;
+    }
+
+    /**
+     * 移除区块记录
+     *
+     * @param key 区块键
+     * @return 记录是否存在
+     */
+    public synchronized boolean remove(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 统计指定玩家在某时间之后生成的区块数量
+     * 分段扫描，期间并发写入的记录可能计入也可能不计入；表在扫描中途扩容或收缩时重新统计
+     *
+     * @param playerIndex 玩家索引
+     * @param since 起始时间（不含）
+     * @return 区块数量
+     */
+    public int countSince(int playerIndex, long since) {
+        int count = 0;
+        int start = 0;
+        int scanGeneration;
+        synchronized (this) {
+            scanGeneration = generation;
+        }
+
+        while (true) {
+            synchronized (this) {
+                if (generation != scanGeneration) {
+                    scanGeneration = generation;
+                    count = 0;
+                    start = 0;
+                }
+                int end = Math.min(start + SCAN_STEP, keys.length);
+                for (int i = start; i < end; i++) {
+                    if (keys[i] != EMPTY && players[i] == playerIndex && times[i] > since) {
+                        count++;
+                    }
+                }
+                if (end == keys.length) {
+                    return count;
+                }
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * 移除早于指定时间的记录，剩余记录过少时收缩容量
+     * 分段扫描，不重建整张表；扫描途中被回移到已扫描位置的过期记录留到下一次清理
+     *
+     * @param cutoff 截止时间
+     * @return 移除的记录数量
+     */
+    public int removeOlderThan(long cutoff) {
+        int removed = 0;
+        int start = 0;
+
+        while (true) {
+            synchronized (this) {
+                int end = Math.min(start + SCAN_STEP, keys.length);
+                int i = start;
+                while (i < end) {
+                    if (keys[i] != EMPTY && times[i] < cutoff) {
+                        // 后续记录回移到当前槽位，需要重新检查
+                        shiftBack(i);
+                        size--;
+                        removed++;
+                    } else {
+                        i++;
+                    }
+                }
+                if (end == keys.length) {
+                    // 收缩需要遍历整张表，只在记录数降到容量的 1/8 以下时进行，大量过期之后才会发生一次
+                    if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+                        rehash(capacityFor(size));
+                    }
+                    return removed;
+                }
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * 获取记录数量
+     *
+     * @return 记录数量
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 清空存储
+     */
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        times = new long[capacity];
+        players = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        generation++;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldTimes = times;
+        int[] oldPlayers = players;
+
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insertFresh(oldKeys[i], oldTimes[i], oldPlayers[i]);
+            }
+        }
+    }
+
+    private void insertFresh(long key, long time, int playerIndex) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        times[slot] = time;
+        players[slot] = playerIndex;
+        size++;
+    }
+
+    /**
+     * 线性探测删除：将后续记录回移，保持探测链连续
+     */
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            // 只有当记录的理想位置不在 (hole, next] 区间内时才能回移
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                times[hole] = times[next];
+                players[hole] = players[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * 打乱 long 键的位，用于开放寻址的槽位计算（PlayerGrid 的单元表同样使用）
+     */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -1,14 +1,19 @@
 package com.whitelu.antipaotu.data;
 
-import java.time.LocalDateTime;
+import com.whitelu.antipaotu.util.MonotonicClock;
+
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 玩家数据模型类
  * 用于存储玩家的跑图检测相关数据
+ * 窗口计数和冷却状态基于原子变量，区块事件线程与检测线程互不阻塞
 
  */
 public class PlayerData {
@@ -18,100 +23,121 @@ public class PlayerData {
     
 
     private final AtomicInteger continuousCount;
-    private volatile LocalDateTime lastDetectionTime;
-    private volatile LocalDateTime lastCooldownTime;
-    private volatile boolean isInCooldown;
+    private volatile long lastDetectionTime;
+    private volatile long lastCooldownTime;
+    // 当前冷却的开始时间，不在冷却期时为 NEVER
+    private final AtomicLong cooldownStart;
     
 
-    private volatile LocalDateTime currentWindowStart;
-    private final List<ChunkData> currentWindowChunks;
+    private final AtomicLong currentWindowStart;
+    private final SlidingWindowCounter currentWindowChunks;
     
 
-    private final List<DetectionRecord> detectionHistory;
+    private final Deque<DetectionRecord> detectionHistory;
+    private final AtomicInteger detectionHistorySize;
     
 
     // 鞘翅状态
     private volatile boolean isGliding;
-    private volatile LocalDateTime glidingStartTime;
+    private volatile long glidingStartTime;
     
     // 维度切换冷却状态
-    private volatile LocalDateTime lastDimensionSwitchTime;
-    private volatile boolean isInDimensionSwitchCooldown;
+    private volatile long lastDimensionSwitchTime;
+    private final AtomicLong dimensionSwitchCooldownStart;
     
-    public PlayerData(UUID playerId, String playerName) {
+    public PlayerData(UUID playerId, String playerName, int timeWindowSeconds) {
         this.playerId = playerId;
         this.playerName = playerName;
         this.continuousCount = new AtomicInteger(0);
-        this.currentWindowChunks = new ArrayList<>();
-        this.detectionHistory = new ArrayList<>();
-        this.isInCooldown = false;
+        this.currentWindowStart = new AtomicLong(MonotonicClock.NEVER);
+        this.currentWindowChunks = new SlidingWindowCounter(timeWindowSeconds);
+        this.detectionHistory = new ConcurrentLinkedDeque<>();
+        this.detectionHistorySize = new AtomicInteger(0);
+        this.cooldownStart = new AtomicLong(MonotonicClock.NEVER);
         this.isGliding = false;
-        this.isInDimensionSwitchCooldown = false;
+        this.dimensionSwitchCooldownStart = new AtomicLong(MonotonicClock.NEVER);
     }
     
     /**
      * 开始新的检测窗口
      */
-    public synchronized void startNewDetectionWindow() {
-        this.currentWindowStart = LocalDateTime.now();
-        this.currentWindowChunks.clear();
+    public void startNewDetectionWindow() {
+        this.currentWindowStart.set(MonotonicClock.nowMillis());
+        this.currentWindowChunks.reset();
     }
     
     /**
      * 添加区块数据到当前窗口
      */
-    public synchronized void addChunkToCurrentWindow(ChunkData chunkData) {
-        this.currentWindowChunks.add(chunkData);
+    public void addChunkToCurrentWindow(ChunkData chunkData) {
+        this.currentWindowChunks.add(currentSecond());
     }
     
     /**
      * 获取当前窗口的区块数量
      */
-    public synchronized int getCurrentWindowChunkCount() {
-        return this.currentWindowChunks.size();
+    public int getCurrentWindowChunkCount() {
+        return this.currentWindowChunks.count(currentSecond());
     }
     
     /**
      * 清理过期的区块数据
      */
-    public synchronized void cleanupExpiredChunks(int timeWindowSeconds) {
-        if (currentWindowStart == null) {
+    public void cleanupExpiredChunks(int timeWindowSeconds) {
+        resizeWindow(timeWindowSeconds);
+        
+        long windowStart = currentWindowStart.get();
+        if (windowStart == MonotonicClock.NEVER) {
             return;
         }
         
-        LocalDateTime cutoffTime = LocalDateTime.now().minusSeconds(timeWindowSeconds);
-        currentWindowChunks.removeIf(chunk -> chunk.getGenerationTime().isBefore(cutoffTime));
+        long cutoffTime = MonotonicClock.nowMillis() - timeWindowSeconds * 1000L;
         
 
-        if (currentWindowStart.isBefore(cutoffTime)) {
-            if (currentWindowChunks.isEmpty()) {
-                currentWindowStart = null;
-            } else {
-                currentWindowStart = currentWindowChunks.get(0).getGenerationTime();
-            }
+        if (windowStart < cutoffTime) {
+            long next = currentWindowChunks.count(currentSecond()) == 0 ? MonotonicClock.NEVER : cutoffTime;
+            // 期间开始了新窗口时不覆盖
+            currentWindowStart.compareAndSet(windowStart, next);
         }
     }
     
+    /**
+     * 调整检测窗口长度（配置重载后调用），保留仍在窗口内的区块计数
+     */
+    public void resizeWindow(int timeWindowSeconds) {
+        currentWindowChunks.resize(timeWindowSeconds, currentSecond());
+    }
+    
+    private static long currentSecond() {
+        return MonotonicClock.nowSeconds();
+    }
+    
     /**
      * 触发检测，增加连续计数
+     * 距离上次检测超过 streakTimeoutMillis 时视为新的一次跑图，连续计数从1开始，
+     * 避免冷却结束时的检测被跳过（玩家离线等）后，相隔很久的两次飞行被算作连续
+     * 
+     * @param streakTimeoutMillis 连续检测的最大间隔（冷却时间加时间窗口）
      */
-    public void triggerDetection() {
+    public void triggerDetection(long streakTimeoutMillis) {
+        long now = MonotonicClock.nowMillis();
+        if (lastDetectionTime != MonotonicClock.NEVER && now - lastDetectionTime > streakTimeoutMillis) {
+            this.continuousCount.set(0);
+        }
         this.continuousCount.incrementAndGet();
-        this.lastDetectionTime = LocalDateTime.now();
+        this.lastDetectionTime = now;
         
 
         DetectionRecord record = new DetectionRecord(
-            LocalDateTime.now(),
+            lastDetectionTime,
             getCurrentWindowChunkCount(),
             continuousCount.get()
         );
         
-        synchronized (detectionHistory) {
-            detectionHistory.add(record);
+        detectionHistory.addLast(record);
 
-            if (detectionHistory.size() > 100) {
-                detectionHistory.remove(0);
-            }
+        if (detectionHistorySize.incrementAndGet() > 100 && detectionHistory.pollFirst() != null) {
+            detectionHistorySize.decrementAndGet();
         }
     }
     
@@ -122,13 +148,32 @@ public class PlayerData {
         this.continuousCount.set(0);
     }
     
+    /**
+     * 冷却结束后的检测未达到阈值（包括窗口内没有区块）时重置连续计数
+     * 
+     * @param chunkCount 当前窗口内的区块数量
+     * @param expectedChunks 阈值
+     * @return 是否重置了连续计数
+     */
+    public boolean resetContinuousCountIfBelow(int chunkCount, int expectedChunks) {
+        if (chunkCount >= expectedChunks || continuousCount.get() == 0 
+            || lastDetectionTime == MonotonicClock.NEVER) {
+            return false;
+        }
+        continuousCount.set(0);
+        return true;
+    }
+    
     /**
      * 设置冷却状态
      */
     public void setCooldown(boolean inCooldown) {
-        this.isInCooldown = inCooldown;
         if (inCooldown) {
-            this.lastCooldownTime = LocalDateTime.now();
+            long now = MonotonicClock.nowMillis();
+            this.lastCooldownTime = now;
+            this.cooldownStart.set(now);
+        } else {
+            this.cooldownStart.set(MonotonicClock.NEVER);
         }
     }
     
@@ -136,26 +181,49 @@ public class PlayerData {
      * 检查是否在冷却期间
      */
     public boolean isInCooldown(int cooldownSeconds) {
-        if (!isInCooldown || lastCooldownTime == null) {
+        return isActive(cooldownStart, cooldownSeconds);
+    }
+    
+    /**
+     * 检查冷却是否仍然有效，已过期时清除（只在未被重新设置时清除）
+     */
+    private static boolean isActive(AtomicLong start, int cooldownSeconds) {
+        long since = start.get();
+        if (since == MonotonicClock.NEVER) {
             return false;
         }
         
-        LocalDateTime cooldownEnd = lastCooldownTime.plusSeconds(cooldownSeconds);
-        boolean stillInCooldown = LocalDateTime.now().isBefore(cooldownEnd);
+        boolean stillInCooldown = MonotonicClock.nowMillis() < since + cooldownSeconds * 1000L;
         
         if (!stillInCooldown) {
-            this.isInCooldown = false;
+            start.compareAndSet(since, MonotonicClock.NEVER);
         }
         
         return stillInCooldown;
     }
     
+    /**
+     * 获取冷却期剩余时间
+     * 
+     * @return 剩余毫秒数，不在冷却期时返回0
+     */
+    public long getCooldownRemainingMillis(int cooldownSeconds) {
+        return remainingMillis(cooldownStart.get(), cooldownSeconds);
+    }
+    
+    private static long remainingMillis(long since, int seconds) {
+        if (since == MonotonicClock.NEVER) {
+            return 0;
+        }
+        return MonotonicClock.remainingMillis(since + seconds * 1000L);
+    }
+    
     /**
      * 设置鞘翅状态
      */
     public void setGlidingState(boolean gliding) {
         if (gliding && !this.isGliding) {
-            this.glidingStartTime = LocalDateTime.now();
+            this.glidingStartTime = MonotonicClock.nowMillis();
         }
         this.isGliding = gliding;
     }
@@ -173,37 +241,31 @@ public class PlayerData {
         return continuousCount.get();
     }
     
-    public LocalDateTime getLastDetectionTime() {
+    public long getLastDetectionTime() {
         return lastDetectionTime;
     }
     
-    public LocalDateTime getLastCooldownTime() {
+    public long getLastCooldownTime() {
         return lastCooldownTime;
     }
     
     public boolean isInCooldown() {
-        return isInCooldown;
+        return cooldownStart.get() != MonotonicClock.NEVER;
     }
     
-    public LocalDateTime getCurrentWindowStart() {
-        return currentWindowStart;
-    }
-    
-    public List<ChunkData> getCurrentWindowChunks() {
-        return new ArrayList<>(currentWindowChunks);
+    public long getCurrentWindowStart() {
+        return currentWindowStart.get();
     }
     
     public List<DetectionRecord> getDetectionHistory() {
-        synchronized (detectionHistory) {
-            return new ArrayList<>(detectionHistory);
-        }
+        return new ArrayList<>(detectionHistory);
     }
     
     public boolean isGliding() {
         return isGliding;
     }
     
-    public LocalDateTime getGlidingStartTime() {
+    public long getGlidingStartTime() {
         return glidingStartTime;
     }
     
@@ -211,32 +273,31 @@ public class PlayerData {
      * 设置维度切换冷却状态
      */
     public void setDimensionSwitchCooldown() {
-        this.lastDimensionSwitchTime = LocalDateTime.now();
-        this.isInDimensionSwitchCooldown = true;
+        long now = MonotonicClock.nowMillis();
+        this.lastDimensionSwitchTime = now;
+        this.dimensionSwitchCooldownStart.set(now);
     }
     
     /**
      * 检查是否在维度切换冷却期间
      */
     public boolean isInDimensionSwitchCooldown(int cooldownSeconds) {
-        if (!isInDimensionSwitchCooldown || lastDimensionSwitchTime == null) {
-            return false;
-        }
-        
-        LocalDateTime cooldownEnd = lastDimensionSwitchTime.plusSeconds(cooldownSeconds);
-        boolean stillInCooldown = LocalDateTime.now().isBefore(cooldownEnd);
-        
-        if (!stillInCooldown) {
-            this.isInDimensionSwitchCooldown = false;
-        }
-        
-        return stillInCooldown;
+        return isActive(dimensionSwitchCooldownStart, cooldownSeconds);
+    }
+    
+    /**
+     * 获取维度切换冷却期剩余时间
+     * 
+     * @return 剩余毫秒数，不在冷却期时返回0
+     */
+    public long getDimensionSwitchCooldownRemainingMillis(int cooldownSeconds) {
+        return remainingMillis(dimensionSwitchCooldownStart.get(), cooldownSeconds);
     }
     
     /**
      * 获取上次维度切换时间
      */
-    public LocalDateTime getLastDimensionSwitchTime() {
+    public long getLastDimensionSwitchTime() {
         return lastDimensionSwitchTime;
     }
     
@@ -244,24 +305,24 @@ public class PlayerData {
      * 检查是否在维度切换冷却状态
      */
     public boolean isInDimensionSwitchCooldown() {
-        return isInDimensionSwitchCooldown;
+        return dimensionSwitchCooldownStart.get() != MonotonicClock.NEVER;
     }
     
     /**
      * 检测记录内部类
      */
     public static class DetectionRecord {
-        private final LocalDateTime time;
+        private final long time;
         private final int chunkCount;
         private final int continuousCount;
         
-        public DetectionRecord(LocalDateTime time, int chunkCount, int continuousCount) {
+        public DetectionRecord(long time, int chunkCount, int continuousCount) {
             this.time = time;
             this.chunkCount = chunkCount;
             this.continuousCount = continuousCount;
         }
         
-        public LocalDateTime getTime() {
+        public long getTime() {
             return time;
         }
         
@@ -0,0 +1,298 @@
+package com.whitelu.antipaotu.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 滑翔玩家空间网格索引
+ * 按世界划分网格单元，记录正在使用鞘翅的玩家位置，
+ * 区块生成时只需查找视距范围内的网格单元。
+ * 网格单元以 long 单元键存放在开放寻址表中，查找过程不装箱
+ */
+public class PlayerGrid {
+
+    /**
+     * 网格单元大小（2^3 = 8x8 区块）
+     */
+    private static final int CELL_SHIFT = 3;
+
+    /**
+     * 区块中心的参考高度，与原先的距离计算保持一致
+     */
+    private static final double CHUNK_CENTER_Y = 128;
+
+    private final Map<UUID, WorldGrid> worlds;
+    private final Map<UUID, Entry> entries;
+
+    public PlayerGrid() {
+        this.worlds = new ConcurrentHashMap<>();
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 按玩家状态快照更新其在网格中的位置
+     *
+     * @param state 玩家状态
+     */
+    public void update(PlayerState state) {
+        UUID worldId = state.getWorldId();
+        if (worldId == null) {
+            remove(state.getPlayerId());
+            return;
+        }
+
+        long cellKey = cellKey((int) Math.floor(state.getX()) >> 4 >> CELL_SHIFT,
+                               (int) Math.floor(state.getZ()) >> 4 >> CELL_SHIFT);
+
+        Entry entry = entries.get(state.getPlayerId());
+        if (entry == null) {
+            entry = new Entry(state);
+            entries.put(state.getPlayerId(), entry);
+        }
+
+        if (entry.cellKey == cellKey && worldId.equals(entry.worldId)) {
+            worlds.get(worldId).raiseViewDistance(state.getViewDistance());
+            return;
+        }
+
+        // 跨单元或跨世界时移动到新的单元
+        detach(entry);
+        entry.worldId = worldId;
+        entry.cellKey = cellKey;
+        WorldGrid worldGrid = worlds.computeIfAbsent(worldId, id -> new WorldGrid());
+        worldGrid.add(entry);
+        worldGrid.raiseViewDistance(state.getViewDistance());
+    }
+
+    /**
+     * 从网格中移除玩家
+     *
+     * @param playerId 玩家ID
+     */
+    public void remove(UUID playerId) {
+        Entry entry = entries.remove(playerId);
+        if (entry != null) {
+            detach(entry);
+        }
+    }
+
+    /**
+     * 查找距离区块最近的、区块在其视距范围内的玩家
+     *
+     * @param worldId 世界ID
+     * @param chunkX 区块X坐标
+     * @param chunkZ 区块Z坐标
+     * @return 最近玩家的状态，如果没有则返回null
+     */
+    public PlayerState findNearest(UUID worldId, int chunkX, int chunkZ) {
+        WorldGrid worldGrid = worlds.get(worldId);
+        if (worldGrid == null) {
+            return null;
+        }
+        CellTable table = worldGrid.cells;
+        if (table.isEmpty()) {
+            return null;
+        }
+
+        double centerX = (chunkX << 4) + 8;
+        double centerZ = (chunkZ << 4) + 8;
+
+        // 视距 * 1.5 个区块为最大判定距离，换算为需要查找的网格单元半径
+        int chunkRadius = (worldGrid.maxViewDistance * 3 + 1) / 2 + 1;
+        int cellRadius = (chunkRadius >> CELL_SHIFT) + 1;
+        int cellX = chunkX >> CELL_SHIFT;
+        int cellZ = chunkZ >> CELL_SHIFT;
+
+        PlayerState nearest = null;
+        double nearestDistanceSquared = Double.MAX_VALUE;
+
+        for (int dx = -cellRadius; dx <= cellRadius; dx++) {
+            for (int dz = -cellRadius; dz <= cellRadius; dz++) {
+                Cell cell = table.get(cellKey(cellX + dx, cellZ + dz));
+                if (cell == null) {
+                    continue;
+                }
+
+                for (Entry entry : cell.entries.values()) {
+                    PlayerState state = entry.state;
+                    double deltaX = state.getX() - centerX;
+                    double deltaY = state.getY() - CHUNK_CENTER_Y;
+                    double deltaZ = state.getZ() - centerZ;
+                    double distanceSquared = deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ;
+
+                    double maxDistance = state.getViewDistance() * 16 * 1.5;
+                    if (distanceSquared <= maxDistance * maxDistance && distanceSquared < nearestDistanceSquared) {
+                        nearestDistanceSquared = distanceSquared;
+                        nearest = state;
+                    }
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * 获取网格中的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 清空网格
+     */
+    public void clear() {
+        entries.clear();
+        worlds.clear();
+    }
+
+    private void detach(Entry entry) {
+        if (entry.worldId == null) {
+            return;
+        }
+
+        WorldGrid worldGrid = worlds.get(entry.worldId);
+        if (worldGrid != null) {
+            worldGrid.remove(entry);
+        }
+        entry.worldId = null;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 单个世界的网格
+     */
+    private static class WorldGrid {
+        // 增删单元时在锁内整体替换，查找时直接读取
+        private volatile CellTable cells = CellTable.EMPTY;
+        private volatile int maxViewDistance;
+        private int population;
+
+        synchronized void add(Entry entry) {
+            Cell cell = cells.get(entry.cellKey);
+            if (cell == null) {
+                cell = new Cell(entry.cellKey);
+                cells = cells.with(cell);
+            }
+            cell.entries.put(entry.state.getPlayerId(), entry);
+            population++;
+        }
+
+        synchronized void remove(Entry entry) {
+            Cell cell = cells.get(entry.cellKey);
+            if (cell == null || cell.entries.remove(entry.state.getPlayerId()) == null) {
+                return;
+            }
+            if (cell.entries.isEmpty()) {
+                cells = cells.without(cell);
+            }
+
+            // 世界中没有滑翔玩家时重置最大视距，缩小后续的查找范围
+            if (--population == 0) {
+                maxViewDistance = 0;
+            }
+        }
+
+        void raiseViewDistance(int viewDistance) {
+            if (viewDistance > maxViewDistance) {
+                maxViewDistance = viewDistance;
+            }
+        }
+    }
+
+    /**
+     * 网格单元，保存单元内的玩家
+     */
+    private static final class Cell {
+        private final long key;
+        private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+        Cell(long key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 不可变的网格单元表，以单元键做开放寻址
+     * 单元只在第一个玩家进入或最后一个玩家离开时增删，远少于区块生成时的查找，
+     * 因此增删时重建整个表，查找线程不需要加锁
+     */
+    private static final class CellTable {
+        private static final CellTable EMPTY = new CellTable(new Cell[0]);
+
+        private final Cell[] cells;
+        private final Cell[] slots;
+
+        private CellTable(Cell[] cells) {
+            this.cells = cells;
+            int capacity = 2;
+            while (capacity < cells.length * 2) {
+                capacity <<= 1;
+            }
+            this.slots = new Cell[capacity];
+            int mask = capacity - 1;
+            for (Cell cell : cells) {
+                int slot = ChunkStore.mix(cell.key) & mask;
+                while (slots[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = cell;
+            }
+        }
+
+        boolean isEmpty() {
+            return cells.length == 0;
+        }
+
+        Cell get(long key) {
+            int mask = slots.length - 1;
+            int slot = ChunkStore.mix(key) & mask;
+            Cell cell;
+            while ((cell = slots[slot]) != null) {
+                if (cell.key == key) {
+                    return cell;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        CellTable with(Cell cell) {
+            Cell[] added = Arrays.copyOf(cells, cells.length + 1);
+            added[cells.length] = cell;
+            return new CellTable(added);
+        }
+
+        CellTable without(Cell cell) {
+            Cell[] remaining = new Cell[cells.length - 1];
+            int index = 0;
+            for (Cell existing : cells) {
+                if (existing != cell) {
+                    remaining[index++] = existing;
+                }
+            }
+            return new CellTable(remaining);
+        }
+    }
+
+    /**
+     * 网格中的玩家条目
+     */
+    private static class Entry {
+        private final PlayerState state;
+        private volatile UUID worldId;
+        private volatile long cellKey;
+
+        Entry(PlayerState state) {
+            this.state = state;
+        }
+    }
+}
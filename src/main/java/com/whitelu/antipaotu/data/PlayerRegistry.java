@@ -0,0 +1,157 @@
+package com.whitelu.antipaotu.data;
+
+import com.whitelu.antipaotu.util.MonotonicClock;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家索引注册表
+ * 为每个玩家分配一个紧凑的整型索引，避免在区块记录中保存UUID和名称。
+ * 长时间离线的玩家释放索引，区块记录全部过期后索引才会分配给其他玩家；
+ * 数组的写入（注册、改名、释放）都在类锁内进行，读取不加锁
+ */
+public final class PlayerRegistry {
+
+    private static final Map<UUID, Integer> indexes = new ConcurrentHashMap<>();
+    private static volatile UUID[] playerIds = new UUID[64];
+    private static volatile String[] playerNames = new String[64];
+
+    // 以下字段由类锁保护
+    private static final ArrayDeque<FreeIndex> freeIndexes = new ArrayDeque<>();
+    private static int nextIndex;
+
+    private PlayerRegistry() {
+    }
+
+    /**
+     * 获取玩家索引，不存在时分配新索引
+     *
+     * @param playerId 玩家ID
+     * @param playerName 玩家名称
+     * @return 玩家索引
+     */
+    public static int indexOf(UUID playerId, String playerName) {
+        Integer index = indexes.get(playerId);
+        if (index != null) {
+            if (!playerName.equals(playerNames[index])) {
+                rename(index, playerName);
+            }
+            return index;
+        }
+        return register(playerId, playerName);
+    }
+
+    /**
+     * 查找已注册的玩家索引
+     *
+     * @param playerId 玩家ID
+     * @return 玩家索引，未注册时返回-1
+     */
+    public static int find(UUID playerId) {
+        Integer index = indexes.get(playerId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 获取已注册的玩家ID
+     *
+     * @param index 玩家索引
+     * @return 玩家ID，未注册时返回null
+     */
+    public static UUID getPlayerId(int index) {
+        UUID[] ids = playerIds;
+        return index >= 0 && index < ids.length ? ids[index] : null;
+    }
+
+    /**
+     * 获取已注册的玩家名称
+     *
+     * @param index 玩家索引
+     * @return 玩家名称，未注册时返回null
+     */
+    public static String getPlayerName(int index) {
+        String[] names = playerNames;
+        return index >= 0 && index < names.length ? names[index] : null;
+    }
+
+    /**
+     * 释放玩家索引，在玩家离线且检测数据已清理后调用
+     * 索引在 reusableAt 之前不会分配给其他玩家，调用方应保证届时引用该索引的区块记录已经过期
+     *
+     * @param playerId 玩家ID
+     * @param reusableAt 可以重新分配的时钟值
+     */
+    public static synchronized void release(UUID playerId, long reusableAt) {
+        Integer index = indexes.remove(playerId);
+        if (index == null) {
+            return;
+        }
+        playerIds[index] = null;
+        playerNames[index] = null;
+        freeIndexes.addLast(new FreeIndex(index, reusableAt));
+    }
+
+    /**
+     * 获取已注册的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public static int size() {
+        return indexes.size();
+    }
+
+    /**
+     * 玩家改名后更新名称
+     * 与扩容在同一把锁内写入，不会写到扩容前的旧数组上
+     */
+    private static synchronized void rename(int index, String playerName) {
+        if (index < playerNames.length && playerIds[index] != null) {
+            playerNames[index] = playerName;
+        }
+    }
+
+    private static synchronized int register(UUID playerId, String playerName) {
+        Integer existing = indexes.get(playerId);
+        if (existing != null) {
+            return existing;
+        }
+
+        FreeIndex free = freeIndexes.peekFirst();
+        int next;
+        if (free != null && free.reusableAt <= MonotonicClock.nowMillis()) {
+            freeIndexes.pollFirst();
+            next = free.index;
+        } else {
+            next = nextIndex++;
+        }
+        if (next >= playerIds.length) {
+            playerIds = Arrays.copyOf(playerIds, playerIds.length * 2);
+            playerNames = Arrays.copyOf(playerNames, playerNames.length * 2);
+        }
+        playerIds[next] = playerId;
+        playerNames[next] = playerName;
+        // 重新发布数组引用，保证读取线程可见
+        playerIds = playerIds;
+        playerNames = playerNames;
+
+        indexes.put(playerId, next);
+        return next;
+    }
+
+    /**
+     * 已释放、等待重新分配的索引
+     */
+    private static final class FreeIndex {
+        private final int index;
+        private final long reusableAt;
+
+        FreeIndex(int index, long reusableAt) {
+            this.index = index;
+            this.reusableAt = reusableAt;
+        }
+    }
+}
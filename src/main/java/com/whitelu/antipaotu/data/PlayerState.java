@@ -0,0 +1,111 @@
+package com.whitelu.antipaotu.data;
+
+import java.util.UUID;
+
+/**
+ * 玩家状态快照
+ * 在相关事件和每个tick刷新，区块生成时只读取这里的字段，不再调用Bukkit API
+ */
+public class PlayerState {
+
+    private final UUID playerId;
+    private final String playerName;
+
+    private volatile UUID worldId;
+    private volatile double x;
+    private volatile double y;
+    private volatile double z;
+    private volatile boolean gliding;
+    private volatile boolean bypass;
+    private volatile boolean notice;
+    private volatile boolean inWater;
+    private volatile int viewDistance;
+
+    public PlayerState(UUID playerId, String playerName) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+    }
+
+    /**
+     * 更新位置
+     *
+     * @param worldId 世界ID
+     * @param x X坐标
+     * @param y Y坐标
+     * @param z Z坐标
+     */
+    public void setPosition(UUID worldId, double x, double y, double z) {
+        this.worldId = worldId;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public int getBlockY() {
+        return (int) Math.floor(y);
+    }
+
+    public boolean isGliding() {
+        return gliding;
+    }
+
+    public void setGliding(boolean gliding) {
+        this.gliding = gliding;
+    }
+
+    public boolean isBypass() {
+        return bypass;
+    }
+
+    public void setBypass(boolean bypass) {
+        this.bypass = bypass;
+    }
+
+    public boolean isNotice() {
+        return notice;
+    }
+
+    public void setNotice(boolean notice) {
+        this.notice = notice;
+    }
+
+    public boolean isInWater() {
+        return inWater;
+    }
+
+    public void setInWater(boolean inWater) {
+        this.inWater = inWater;
+    }
+
+    public int getViewDistance() {
+        return viewDistance;
+    }
+
+    public void setViewDistance(int viewDistance) {
+        this.viewDistance = viewDistance;
+    }
+}
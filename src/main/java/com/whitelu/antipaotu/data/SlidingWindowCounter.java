@@ -0,0 +1,117 @@
+package com.whitelu.antipaotu.data;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口计数器
+ * 以秒为单位的环形计数桶，每个桶用一个 long 同时保存所属秒（高32位）和计数（低32位），
+ * 添加通过 CAS 完成，读写线程之间不加锁、不分配对象。
+ * 计数需要遍历整个窗口，开销为 O(窗口秒数)
+ */
+public class SlidingWindowCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private volatile AtomicLongArray buckets;
+
+    /**
+     * @param windowSeconds 窗口长度（秒）
+     */
+    public SlidingWindowCounter(int windowSeconds) {
+        this.buckets = new AtomicLongArray(Math.max(1, windowSeconds));
+    }
+
+    /**
+     * 在指定秒内计数一次
+     *
+     * @param nowSecond 当前时间（秒）
+     */
+    public void add(long nowSecond) {
+        AtomicLongArray current = buckets;
+        int index = index(nowSecond, current.length());
+        long stamp = nowSecond << 32;
+        while (true) {
+            long value = current.get(index);
+            long second = value >>> 32;
+            if (second > nowSecond) {
+                // 桶已被更晚的秒占用，说明这次计数早已滑出窗口
+                return;
+            }
+
+            long next = second == nowSecond ? value + 1 : stamp | 1;
+            if (current.compareAndSet(index, value, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取窗口内的计数
+     *
+     * @param nowSecond 当前时间（秒）
+     * @return 计数
+     */
+    public int count(long nowSecond) {
+        AtomicLongArray current = buckets;
+        long oldest = nowSecond - current.length();
+        int total = 0;
+        for (int i = 0; i < current.length(); i++) {
+            long value = current.get(i);
+            long second = value >>> 32;
+            if (second > oldest && second <= nowSecond) {
+                total += (int) (value & COUNT_MASK);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 清空所有计数
+     */
+    public void reset() {
+        AtomicLongArray current = buckets;
+        for (int i = 0; i < current.length(); i++) {
+            current.set(i, 0L);
+        }
+    }
+
+    /**
+     * 调整窗口长度，保留仍处于新窗口内的计数
+     * 调整期间并发的计数可能丢失，只应在配置变化时调用
+     *
+     * @param windowSeconds 新的窗口长度（秒）
+     * @param nowSecond 当前时间（秒）
+     */
+    public void resize(int windowSeconds, long nowSecond) {
+        int newLength = Math.max(1, windowSeconds);
+        AtomicLongArray current = buckets;
+        if (newLength == current.length()) {
+            return;
+        }
+
+        AtomicLongArray resized = new AtomicLongArray(newLength);
+        long oldest = nowSecond - Math.min(newLength, current.length());
+        for (int i = 0; i < current.length(); i++) {
+            long value = current.get(i);
+            long second = value >>> 32;
+            if (second > oldest && second <= nowSecond) {
+                resized.set(index(second, newLength), value);
+            }
+        }
+
+        this.buckets = resized;
+    }
+
+    /**
+     * 获取窗口长度（秒）
+     *
+     * @return 窗口长度
+     */
+    public int getWindowSeconds() {
+        return buckets.length();
+    }
+
+    private static int index(long second, int length) {
+        return (int) Math.floorMod(second, (long) length);
+    }
+}
@@ -0,0 +1,89 @@
+package com.whitelu.antipaotu.data;
+
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 世界索引注册表
+ * 为每个世界分配一个紧凑的短整型索引，用于打包区块键
+ */
+public final class WorldRegistry {
+
+    /**
+     * 最大世界数量，保留 0xFFFF 作为空键标记
+     */
+    public static final int MAX_WORLDS = 0x7FFF;
+
+    private static final Map<UUID, Short> indexes = new ConcurrentHashMap<>();
+    private static volatile UUID[] worldIds = new UUID[8];
+    private static volatile String[] worldNames = new String[8];
+
+    private WorldRegistry() {
+    }
+
+    /**
+     * 获取世界索引，不存在时分配新索引
+     *
+     * @param world 世界
+     * @return 世界索引
+     */
+    public static short indexOf(World world) {
+        Short index = indexes.get(world.getUID());
+        if (index != null) {
+            return index;
+        }
+        return register(world.getUID(), world.getName());
+    }
+
+    /**
+     * 获取已注册的世界ID
+     *
+     * @param index 世界索引
+     * @return 世界ID，未注册时返回null
+     */
+    public static UUID getWorldId(short index) {
+        UUID[] ids = worldIds;
+        return index >= 0 && index < ids.length ? ids[index] : null;
+    }
+
+    /**
+     * 获取已注册的世界名称
+     *
+     * @param index 世界索引
+     * @return 世界名称，未注册时返回null
+     */
+    public static String getWorldName(short index) {
+        String[] names = worldNames;
+        return index >= 0 && index < names.length ? names[index] : null;
+    }
+
+    private static synchronized short register(UUID worldId, String worldName) {
+        Short existing = indexes.get(worldId);
+        if (existing != null) {
+            return existing;
+        }
+
+        int next = indexes.size();
+        if (next >= MAX_WORLDS) {
+            throw new IllegalStateException("已注册的世界数量超过上限: " + MAX_WORLDS);
+        }
+
+        if (next >= worldIds.length) {
+            worldIds = Arrays.copyOf(worldIds, worldIds.length * 2);
+            worldNames = Arrays.copyOf(worldNames, worldNames.length * 2);
+        }
+        worldIds[next] = worldId;
+        worldNames[next] = worldName;
+        // 重新发布数组引用，保证读取线程可见
+        worldIds = worldIds;
+        worldNames = worldNames;
+
+        short index = (short) next;
+        indexes.put(worldId, index);
+        return index;
+    }
+}
@@ -0,0 +1,28 @@
+package com.whitelu.antipaotu.listener;
+
+import com.whitelu.antipaotu.AntiPaotuPlugin;
+import io.papermc.paper.event.packet.PlayerChunkLoadEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * 玩家区块加载监听器
+ * 监听区块发送给玩家的事件（Paper），用于将新生成的区块归属给实际请求它的玩家
+ */
+public class PlayerChunkLoadListener implements Listener {
+    
+    private final AntiPaotuPlugin plugin;
+    
+    public PlayerChunkLoadListener(AntiPaotuPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * 监听玩家区块加载事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChunkLoad(PlayerChunkLoadEvent event) {
+        plugin.getChunkTracker().onPlayerChunkLoad(event.getPlayer(), event.getChunk());
+    }
+}
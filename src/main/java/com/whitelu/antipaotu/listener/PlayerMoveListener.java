@@ -68,7 +68,8 @@ public class PlayerMoveListener implements Listener {
             }
         } else if (isGliding) {
 
-            playerData = new PlayerData(player.getUniqueId(), player.getName());
+            playerData = new PlayerData(player.getUniqueId(), player.getName(), 
+                                        plugin.getConfigManager().getTimeWindow());
             playerData.setGlidingState(true);
             playerData.startNewDetectionWindow();
             
@@ -1,71 +1,131 @@
 package com.whitelu.antipaotu.manager;
 
 import com.whitelu.antipaotu.AntiPaotuPlugin;
+import com.whitelu.antipaotu.data.BanIndex;
+import com.whitelu.antipaotu.data.BanStore;
+import com.whitelu.antipaotu.util.DeadlineQueue;
+import com.whitelu.antipaotu.util.MonotonicClock;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 
-import java.time.LocalDateTime;
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 封禁管理器类
- * 处理玩家临时封禁逻辑
+ * 处理玩家临时封禁逻辑，封禁记录通过 BanStore 持久化，重启后仍然有效。
+ * 每条封禁在创建时确定到期时间，到期由截止时间队列按时解除
 
  */
 public class BanManager implements Listener {
     
     private final AntiPaotuPlugin plugin;
     private final Map<UUID, BanRecord> bannedPlayers;
+    private final BanStore banStore;
+    
+    // 供登录线程和其他线程无锁查询的封禁索引，封禁变化时整体替换
+    private volatile BanIndex banIndex;
+    
+    // 按到期时间排列的封禁
+    private final DeadlineQueue<UUID> expiryQueue;
     
 
-    private int cleanupTaskId = -1;
+    private ScheduledTask expiryTask;
+    private ScheduledTask compactTask;
     
     public BanManager(AntiPaotuPlugin plugin) {
         this.plugin = plugin;
         this.bannedPlayers = new ConcurrentHashMap<>();
+        this.banStore = new BanStore(new File(plugin.getDataFolder(), "bans"), plugin.getLogger(), this::snapshotBans);
+        this.banIndex = BanIndex.EMPTY;
+        this.expiryQueue = new DeadlineQueue<>();
         
 
         Bukkit.getPluginManager().registerEvents(this, plugin);
         
 
-        startCleanupTask();
+        startTasks();
     }
     
     /**
-     * 监听玩家登录事件
+     * 从存储中加载封禁记录，持久化的时间戳换算为时钟值
+     * 每条记录保存了封禁时确定的到期时间，加载时不受当前封禁时长配置影响
      */
-    @EventHandler(priority = EventPriority.HIGHEST)
-    public void onPlayerLogin(PlayerLoginEvent event) {
-        UUID playerId = event.getPlayer().getUniqueId();
+    public void loadBans() {
+        long now = MonotonicClock.nowMillis();
         
-        if (isBanned(playerId)) {
-            BanRecord banRecord = bannedPlayers.get(playerId);
-            if (banRecord != null) {
-                LocalDateTime banEnd = banRecord.getBanTime().plusMinutes(plugin.getConfigManager().getBanDurationMinutes());
-                LocalDateTime now = LocalDateTime.now();
-                
-                if (now.isBefore(banEnd)) {
-
-                    long remainingMinutes = java.time.Duration.between(now, banEnd).toMinutes() + 1;
-                    
-                    String kickMessage = plugin.getConfigManager().getFormattedMessage("player.ban-login", 
-                        "§c你因连续触发多次跑图检测，被暂时禁止进入服务器\n§e请在%time%分钟后再试");
-                    kickMessage = kickMessage.replace("%time%", String.valueOf(remainingMinutes));
-                    
-                    event.disallow(PlayerLoginEvent.Result.KICK_BANNED, kickMessage);
-                    return;
-                } else {
-
-                    unbanPlayer(playerId);
-                }
+        for (BanStore.StoredBan stored : banStore.load().values()) {
+            long banTime = MonotonicClock.fromEpochMillis(stored.getBannedAt());
+            long expiresAt = MonotonicClock.fromEpochMillis(stored.getExpiresAt());
+            if (expiresAt <= now) {
+                continue;
             }
+            
+            bannedPlayers.put(stored.getPlayerId(), 
+                new BanRecord(stored.getPlayerId(), stored.getPlayerName(), banTime, expiresAt));
+            expiryQueue.schedule(stored.getPlayerId(), expiresAt);
         }
+        rebuildIndex();
+        
+        // 启动时压缩一次，丢弃已到期的记录
+        banStore.compact();
+    }
+    
+    /**
+     * 生成当前全部封禁记录的持久化快照
+     */
+    private Collection<BanStore.StoredBan> snapshotBans() {
+        return bannedPlayers.values().stream()
+                .map(this::toStoredBan)
+                .collect(java.util.stream.Collectors.toList());
+    }
+    
+    private BanStore.StoredBan toStoredBan(BanRecord banRecord) {
+        return new BanStore.StoredBan(banRecord.getPlayerId(), banRecord.getPlayerName(), 
+            MonotonicClock.toEpochMillis(banRecord.getBanTime()), 
+            MonotonicClock.toEpochMillis(banRecord.getExpiresAt()));
+    }
+    
+    /**
+     * 重建封禁索引，封禁变化后调用
+     */
+    private synchronized void rebuildIndex() {
+        Map<UUID, Long> expiries = new HashMap<>();
+        for (BanRecord banRecord : bannedPlayers.values()) {
+            expiries.put(banRecord.getPlayerId(), banRecord.getExpiresAt());
+        }
+        this.banIndex = BanIndex.of(expiries);
+    }
+    
+    /**
+     * 监听异步预登录事件
+     * 在玩家占用登录名额、加载区块之前拒绝被封禁的玩家，只查询封禁索引
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        long remainingMillis = MonotonicClock.remainingMillis(banIndex.getExpiry(event.getUniqueId()));
+        if (remainingMillis <= 0) {
+            return;
+        }
+        
+
+        long remainingMinutes = remainingMillis / 60000L + 1;
+        
+        String kickMessage = plugin.getConfigManager().getFormattedMessageTemplate("player.ban-login", 
+            "§c你因连续触发多次跑图检测，被暂时禁止进入服务器\n§e请在%time%分钟后再试")
+            .render("%time%", String.valueOf(remainingMinutes));
+        
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, kickMessage);
     }
     
     /**
@@ -75,17 +135,25 @@ public class BanManager implements Listener {
      * @param playerName 玩家名称
      */
     public void banPlayer(UUID playerId, String playerName) {
-        BanRecord banRecord = new BanRecord(playerId, playerName, LocalDateTime.now());
+        // 到期时间在封禁时确定，之后修改封禁时长只影响新的封禁
+        long banTime = MonotonicClock.nowMillis();
+        long expiresAt = banTime + plugin.getConfigManager().getBanDurationMinutes() * 60000L;
+        BanRecord banRecord = new BanRecord(playerId, playerName, banTime, expiresAt);
         bannedPlayers.put(playerId, banRecord);
+        plugin.getMetricsRegistry().recordBan();
+        banStore.appendBan(toStoredBan(banRecord));
+        expiryQueue.schedule(playerId, expiresAt);
+        rebuildIndex();
         
 
         Player player = Bukkit.getPlayer(playerId);
         if (player != null && player.isOnline()) {
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            // 在玩家所在区域的线程上踢出玩家
+            plugin.getSchedulerUtil().runForEntity(player, () -> {
                 int banDuration = plugin.getConfigManager().getBanDurationMinutes();
-                String kickMessage = plugin.getConfigManager().getFormattedMessage("player.ban-kick", 
-                    "§c你因连续触发多次跑图检测，被暂时禁止进入服务器\n§e请在%time%分钟后再试");
-                kickMessage = kickMessage.replace("%time%", String.valueOf(banDuration));
+                String kickMessage = plugin.getConfigManager().getFormattedMessageTemplate("player.ban-kick", 
+                    "§c你因连续触发多次跑图检测，被暂时禁止进入服务器\n§e请在%time%分钟后再试")
+                    .render("%time%", String.valueOf(banDuration));
                 
                 player.kickPlayer(kickMessage);
             });
@@ -104,7 +172,14 @@ public class BanManager implements Listener {
      */
     public void unbanPlayer(UUID playerId) {
         BanRecord banRecord = bannedPlayers.remove(playerId);
-        if (banRecord != null && plugin.getConfigManager().isDebugEnabled()) {
+        if (banRecord == null) {
+            return;
+        }
+        
+        banStore.appendUnban(playerId);
+        expiryQueue.remove(playerId);
+        rebuildIndex();
+        if (plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().info("玩家" + banRecord.getPlayerName() + "的封禁已解除");
         }
     }
@@ -116,20 +191,7 @@ public class BanManager implements Listener {
      * @return 是否被封禁
      */
     public boolean isBanned(UUID playerId) {
-        BanRecord banRecord = bannedPlayers.get(playerId);
-        if (banRecord == null) {
-            return false;
-        }
-        
-
-        LocalDateTime banEnd = banRecord.getBanTime().plusMinutes(plugin.getConfigManager().getBanDurationMinutes());
-        if (LocalDateTime.now().isAfter(banEnd)) {
-
-            unbanPlayer(playerId);
-            return false;
-        }
-        
-        return true;
+        return banIndex.isBanned(playerId, MonotonicClock.nowMillis());
     }
     
     /**
@@ -149,50 +211,63 @@ public class BanManager implements Listener {
      * @return 剩余时间，如果没有被封禁则返回0
      */
     public long getRemainingBanTime(UUID playerId) {
-        BanRecord banRecord = bannedPlayers.get(playerId);
-        if (banRecord == null) {
+        long remainingMillis = MonotonicClock.remainingMillis(banIndex.getExpiry(playerId));
+        if (remainingMillis <= 0) {
             return 0;
         }
         
-        LocalDateTime banEnd = banRecord.getBanTime().plusMinutes(plugin.getConfigManager().getBanDurationMinutes());
-        LocalDateTime now = LocalDateTime.now();
-        
-        if (now.isAfter(banEnd)) {
-            return 0;
-        }
-        
-        return java.time.Duration.between(now, banEnd).toMinutes() + 1;
+        return remainingMillis / 60000L + 1;
     }
     
     /**
-     * 启动定期清理任务
+     * 启动定期任务
      */
-    private void startCleanupTask() {
+    private void startTasks() {
 
-        cleanupTaskId = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
-            this::cleanupExpiredBans,
+        expiryTask = plugin.getSchedulerUtil().runAsyncTimer(
+            this::expireDueBans,
+            20L,
+            20L
+        );
+        
+        compactTask = plugin.getSchedulerUtil().runAsyncTimer(
+            banStore::compact,
             20L * 60 * 10,
             20L * 60 * 10
-        ).getTaskId();
+        );
     }
     
     /**
-     * 清理过期的封禁记录
+     * 解除已到期的封禁，只处理截止时间队列中到期的条目
      */
-    private void cleanupExpiredBans() {
-        int banDuration = plugin.getConfigManager().getBanDurationMinutes();
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(banDuration);
+    private void expireDueBans() {
+        long now = MonotonicClock.nowMillis();
         
         int removedCount = 0;
-        for (Map.Entry<UUID, BanRecord> entry : bannedPlayers.entrySet()) {
-            if (entry.getValue().getBanTime().isBefore(cutoffTime)) {
-                bannedPlayers.remove(entry.getKey());
+        UUID playerId;
+        while ((playerId = expiryQueue.pollDue(now)) != null) {
+            BanRecord banRecord = bannedPlayers.get(playerId);
+            if (banRecord == null) {
+                continue;
+            }
+            
+            if (banRecord.getExpiresAt() > now) {
+                // 被重新封禁，按新的到期时间再次排队
+                expiryQueue.schedule(playerId, banRecord.getExpiresAt());
+                continue;
+            }
+            
+            // 到期的记录不写日志，加载时同样会跳过
+            if (bannedPlayers.remove(playerId, banRecord)) {
                 removedCount++;
             }
         }
         
-        if (removedCount > 0 && plugin.getConfigManager().isDebugVerbose()) {
-            plugin.getLogger().info("清理了" + removedCount + "个过期的封禁记录");
+        if (removedCount > 0) {
+            rebuildIndex();
+            if (plugin.getConfigManager().isDebugVerbose()) {
+                plugin.getLogger().info("解除了" + removedCount + "个到期的封禁");
+            }
         }
     }
     
@@ -202,8 +277,6 @@ public class BanManager implements Listener {
      * @return 被封禁的玩家数量
      */
     public int getBannedPlayerCount() {
-
-        cleanupExpiredBans();
         return bannedPlayers.size();
     }
     
@@ -213,9 +286,6 @@ public class BanManager implements Listener {
      * @return 被封禁的玩家名字列表
      */
     public java.util.List<String> getBannedPlayerNames() {
-
-        cleanupExpiredBans();
-        
         return bannedPlayers.values().stream()
                 .map(BanRecord::getPlayerName)
                 .collect(java.util.stream.Collectors.toList());
@@ -226,12 +296,16 @@ public class BanManager implements Listener {
      */
     public void cleanup() {
 
-        if (cleanupTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(cleanupTaskId);
-            cleanupTaskId = -1;
-        }
+        SchedulerUtil.cancel(expiryTask);
+        expiryTask = null;
+        SchedulerUtil.cancel(compactTask);
+        compactTask = null;
         
+        // 写入最终快照，封禁记录在重启后继续生效；close 返回时所有写入都已完成
+        banStore.close(snapshotBans());
         bannedPlayers.clear();
+        expiryQueue.clear();
+        banIndex = BanIndex.EMPTY;
     }
     
     /**
@@ -240,12 +314,14 @@ public class BanManager implements Listener {
     public static class BanRecord {
         private final UUID playerId;
         private final String playerName;
-        private final LocalDateTime banTime;
+        private final long banTime;
+        private final long expiresAt;
         
-        public BanRecord(UUID playerId, String playerName, LocalDateTime banTime) {
+        public BanRecord(UUID playerId, String playerName, long banTime, long expiresAt) {
             this.playerId = playerId;
             this.playerName = playerName;
             this.banTime = banTime;
+            this.expiresAt = expiresAt;
         }
         
         public UUID getPlayerId() {
@@ -256,8 +332,12 @@ public class BanManager implements Listener {
             return playerName;
         }
         
-        public LocalDateTime getBanTime() {
+        public long getBanTime() {
             return banTime;
         }
+        
+        public long getExpiresAt() {
+            return expiresAt;
+        }
     }
 } 
\ No newline at end of file
@@ -1,21 +1,25 @@
 package com.whitelu.antipaotu.manager;
 
 import com.whitelu.antipaotu.AntiPaotuPlugin;
+import com.whitelu.antipaotu.config.ConfigSnapshot;
 import com.whitelu.antipaotu.data.ChunkData;
+import com.whitelu.antipaotu.data.ChunkStore;
+import com.whitelu.antipaotu.data.PlayerRegistry;
+import com.whitelu.antipaotu.data.PlayerState;
+import com.whitelu.antipaotu.data.WorldRegistry;
+import com.whitelu.antipaotu.listener.PlayerChunkLoadListener;
+import com.whitelu.antipaotu.util.MonotonicClock;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
-import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 
-import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 区块追踪管理器
@@ -27,22 +31,67 @@ public class ChunkTracker implements Listener {
     private final AntiPaotuPlugin plugin;
     
 
-    private final Map<String, ChunkData> recentChunks;
+    private final ChunkStore recentChunks;
+    
+    // 已生成但尚未发送给玩家的区块，等待按玩家归属
+    private final ChunkStore pendingChunks;
+    
+    // 服务端是否提供按玩家的区块加载事件（Paper）
+    private final boolean playerChunkEventsAvailable;
     
 
-    private int cleanupTaskId = -1;
+    private ScheduledTask cleanupTask;
+    private ScheduledTask pendingCleanupTask;
+    
+    /**
+     * 待归属区块的保留时间（毫秒）
+     */
+    private static final long PENDING_CHUNK_TIMEOUT_MILLIS = 10_000L;
+    
+    /**
+     * 过期区块记录的清理间隔（tick）
+     */
+    private static final long CLEANUP_INTERVAL_TICKS = 20L * 60 * 5;
     
     public ChunkTracker(AntiPaotuPlugin plugin) {
         this.plugin = plugin;
-        this.recentChunks = new ConcurrentHashMap<>();
+        this.recentChunks = new ChunkStore();
+        this.pendingChunks = new ChunkStore();
         
 
         Bukkit.getPluginManager().registerEvents(this, plugin);
+        this.playerChunkEventsAvailable = registerPlayerChunkListener();
         
 
         startCleanupTask();
     }
     
+    /**
+     * 注册按玩家的区块加载监听器
+     * 
+     * @return 服务端是否支持该事件
+     */
+    private boolean registerPlayerChunkListener() {
+        try {
+            Class.forName("io.papermc.paper.event.packet.PlayerChunkLoadEvent");
+        } catch (ClassNotFoundException e) {
+            plugin.getLogger().warning("当前服务端不支持按玩家的区块加载事件，区块归属将使用最近玩家判定");
+            return false;
+        }
+        
+        Bukkit.getPluginManager().registerEvents(new PlayerChunkLoadListener(plugin), plugin);
+        return true;
+    }
+    
+    /**
+     * 是否使用按玩家的区块归属方式
+     * 
+     * @return 是否按区块实际发送给的玩家归属
+     */
+    public boolean isPlayerChunkAttribution() {
+        return playerChunkEventsAvailable && plugin.getConfigManager().isPlayerChunkAttribution();
+    }
+    
     /**
      * 监听区块加载事件
      */
@@ -53,10 +102,32 @@ public class ChunkTracker implements Listener {
             return;
         }
         
+        long startNanos = System.nanoTime();
+        try {
+            handleNewChunk(event);
+        } finally {
+            plugin.getMetricsRegistry().getChunkLoadTime().recordSince(startNanos);
+        }
+    }
+    
+    /**
+     * 处理新生成的区块
+     */
+    private void handleNewChunk(ChunkLoadEvent event) {
         Chunk chunk = event.getChunk();
+        plugin.getMetricsRegistry().getWorld(event.getWorld().getName()).getGenerated().mark();
+        long chunkKey = ChunkStore.key(WorldRegistry.indexOf(event.getWorld()), chunk.getX(), chunk.getZ());
+        
+        // 按玩家归属时，等区块发送给玩家后再确定触发者
+        if (isPlayerChunkAttribution()) {
+            pendingChunks.put(chunkKey, MonotonicClock.nowMillis(), -1);
+            return;
+        }
         
 
-        Player triggerPlayer = findNearestPlayer(chunk);
+        // 只读取玩家状态快照，不在此处调用Bukkit API
+        PlayerState triggerPlayer = plugin.getPlayerStateTracker()
+            .findNearestGlidingPlayer(event.getWorld().getUID(), chunk.getX(), chunk.getZ());
         if (triggerPlayer == null) {
             return;
         }
@@ -66,25 +137,79 @@ public class ChunkTracker implements Listener {
             return;
         }
         
+        attributeChunk(chunk, chunkKey, triggerPlayer);
+    }
+    
+    /**
+     * 区块发送给玩家时调用
+     * 如果该区块是刚生成的，则归属给接收它的滑翔玩家
+     * 
+     * @param player 接收区块的玩家
+     * @param chunk 区块
+     */
+    public void onPlayerChunkLoad(Player player, Chunk chunk) {
+        if (!isPlayerChunkAttribution()) {
+            return;
+        }
+        
+        // 非滑翔玩家接收时保留待归属状态，交给同样请求了该区块的滑翔玩家
+        PlayerState triggerPlayer = plugin.getPlayerStateTracker().getState(player.getUniqueId());
+        if (triggerPlayer == null || !triggerPlayer.isGliding()) {
+            return;
+        }
+        
+        long chunkKey = ChunkStore.key(WorldRegistry.indexOf(chunk.getWorld()), chunk.getX(), chunk.getZ());
+        if (!pendingChunks.remove(chunkKey)) {
+            return;
+        }
+        
+        attributeChunk(chunk, chunkKey, triggerPlayer);
+    }
+    
+    /**
+     * 将新生成的区块归属给玩家并记录，统计耗时
+     * 
+     * @param chunk 区块
+     * @param chunkKey 区块键
+     * @param triggerPlayer 触发玩家的状态快照
+     */
+    private void attributeChunk(Chunk chunk, long chunkKey, PlayerState triggerPlayer) {
+        long startNanos = System.nanoTime();
+        try {
+            recordChunk(chunk, chunkKey, triggerPlayer);
+        } finally {
+            plugin.getMetricsRegistry().getAttributionTime().recordSince(startNanos);
+        }
+    }
+    
+    /**
+     * 将新生成的区块归属给玩家并记录
+     * 
+     * @param chunk 区块
+     * @param chunkKey 区块键
+     * @param triggerPlayer 触发玩家的状态快照
+     */
+    private void recordChunk(Chunk chunk, long chunkKey, PlayerState triggerPlayer) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
 
-        if (triggerPlayer.hasPermission("antipaotu.bypass")) {
+        if (triggerPlayer.isBypass()) {
             return;
         }
         
         // 检查玩家是否在水中（如果启用了此功能）
-        if (plugin.getConfigManager().isDisableDetectionInWater() && isPlayerInWater(triggerPlayer)) {
-            if (plugin.getConfigManager().isDebugVerbose()) {
-                plugin.getLogger().info("玩家 " + triggerPlayer.getName() + 
+        if (config.isDisableDetectionInWater() && triggerPlayer.isInWater()) {
+            if (config.isDebugVerbose()) {
+                plugin.getLogger().info("玩家 " + triggerPlayer.getPlayerName() + 
                                       " 在水中使用鞘翅，忽略区块生成检测");
             }
             return;
         }
 
-        if (plugin.getConfigManager().isHeightFilterEnabled()) {
-            int heightThreshold = plugin.getConfigManager().getHeightThreshold();
-            if (triggerPlayer.getLocation().getBlockY() > heightThreshold) {
-                if (plugin.getConfigManager().isDebugVerbose()) {
-                    plugin.getLogger().info("玩家 " + triggerPlayer.getName() + 
+        if (config.isHeightFilterEnabled()) {
+            int heightThreshold = config.getHeightThreshold();
+            if (triggerPlayer.getBlockY() > heightThreshold) {
+                if (config.isDebugVerbose()) {
+                    plugin.getLogger().info("玩家 " + triggerPlayer.getPlayerName() + 
                                           " 高度超过阈值，忽略检测");
                 }
                 return;
@@ -92,95 +217,55 @@ public class ChunkTracker implements Listener {
         }
         
 
-        ChunkData chunkData = new ChunkData(
-            chunk,
-            triggerPlayer.getUniqueId(),
-            triggerPlayer.getName(),
-            triggerPlayer.getLocation()
-        );
+        int playerIndex = PlayerRegistry.indexOf(triggerPlayer.getPlayerId(), triggerPlayer.getPlayerName());
+        long now = MonotonicClock.nowMillis();
+        recentChunks.put(chunkKey, now, playerIndex);
+        plugin.getMetricsRegistry().getWorld(chunk.getWorld().getName()).getAttributed().mark();
         
 
-        String chunkKey = chunkData.getChunkKey();
-        recentChunks.put(chunkKey, chunkData);
+        ChunkData chunkData = new ChunkData(
+            ChunkStore.worldIndex(chunkKey),
+            chunk.getX(),
+            chunk.getZ(),
+            playerIndex,
+            now,
+            (int) Math.floor(triggerPlayer.getX()),
+            triggerPlayer.getBlockY(),
+            (int) Math.floor(triggerPlayer.getZ())
+        );
         
 
         plugin.getDetectionManager().onChunkGenerated(chunkData);
         
-        if (plugin.getConfigManager().isDebugVerbose()) {
-            plugin.getLogger().info("检测到区块生成: " + chunkKey + 
-                                  " 触发玩家: " + triggerPlayer.getName());
+        if (config.isDebugVerbose()) {
+            plugin.getLogger().info("检测到区块生成: " + chunkData.getChunkKey() + 
+                                  " 触发玩家: " + triggerPlayer.getPlayerName());
         }
     }
     
     /**
-     * 查找距离区块最近的正在使用鞘翅的玩家
-     * 
-     * @param chunk 区块
-     * @return 最近的玩家，如果没有则返回null
+     * 启动定期清理任务
      */
-    private Player findNearestPlayer(Chunk chunk) {
-        Player nearestPlayer = null;
-        double nearestDistance = Double.MAX_VALUE;
-        
-
-        int chunkCenterX = (chunk.getX() << 4) + 8;
-        int chunkCenterZ = (chunk.getZ() << 4) + 8;
-        Location chunkCenter = new Location(chunk.getWorld(), chunkCenterX, 128, chunkCenterZ);
-        
-        for (Player player : Bukkit.getOnlinePlayers()) {
-
-            if (!player.getWorld().equals(chunk.getWorld())) {
-                continue;
-            }
-            
-
-            if (!player.isGliding()) {
-                continue;
-            }
-            
-
-            Location playerLocation = player.getLocation();
-            double distance = playerLocation.distance(chunkCenter);
-            
+    private void startCleanupTask() {
 
-            int viewDistance = getPlayerViewDistance(player);
-            double maxDistance = viewDistance * 16 * 1.5;
-            
-            if (distance <= maxDistance && distance < nearestDistance) {
-                nearestDistance = distance;
-                nearestPlayer = player;
-            }
-        }
+        cleanupTask = plugin.getSchedulerUtil().runAsyncTimer(
+            this::cleanupExpiredChunks, 
+            CLEANUP_INTERVAL_TICKS,
+            CLEANUP_INTERVAL_TICKS
+        );
         
-        return nearestPlayer;
-    }
-    
-    /**
-     * 获取玩家的视距
-     * 
-     * @param player 玩家
-     * @return 视距
-     */
-    private int getPlayerViewDistance(Player player) {
-        try {
-
-            return player.getClientViewDistance();
-        } catch (Exception e) {
-
-            return Bukkit.getViewDistance();
-        }
+        pendingCleanupTask = plugin.getSchedulerUtil().runAsyncTimer(
+            this::cleanupPendingChunks,
+            20L * 10,
+            20L * 10
+        );
     }
     
     /**
-     * 启动定期清理任务
+     * 清理长时间未发送给滑翔玩家的待归属区块
      */
-    private void startCleanupTask() {
-
-        cleanupTaskId = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, 
-            this::cleanupExpiredChunks, 
-            20L * 60 * 5,
-            20L * 60 * 5
-        ).getTaskId();
+    private void cleanupPendingChunks() {
+        pendingChunks.removeOlderThan(MonotonicClock.nowMillis() - PENDING_CHUNK_TIMEOUT_MILLIS);
     }
     
     /**
@@ -188,30 +273,39 @@ public class ChunkTracker implements Listener {
      */
     private void cleanupExpiredChunks() {
         int timeWindow = plugin.getConfigManager().getTimeWindow();
-        LocalDateTime cutoffTime = LocalDateTime.now().minusSeconds(timeWindow * 2);
+        long cutoffTime = MonotonicClock.nowMillis() - timeWindow * 2 * 1000L;
         
-        recentChunks.entrySet().removeIf(entry -> 
-            entry.getValue().getGenerationTime().isBefore(cutoffTime));
+        recentChunks.removeOlderThan(cutoffTime);
         
         if (plugin.getConfigManager().isDebugVerbose()) {
             plugin.getLogger().info("清理过期区块数据，当前区块数量: " + recentChunks.size());
         }
     }
     
+    /**
+     * 获取区块记录最长的保留时间：超过两个时间窗口后在下一次清理时移除
+     * 
+     * @return 毫秒数
+     */
+    public long getRecordRetentionMillis() {
+        return plugin.getConfigManager().getTimeWindow() * 2 * 1000L + CLEANUP_INTERVAL_TICKS * 50L;
+    }
+    
     /**
      * 获取指定时间窗口内的区块数据
      * 
      * @param playerId 玩家ID
      * @param timeWindowSeconds 时间窗口（秒）
-     * @return 区块数据列表
+     * @return 区块数量
      */
     public long getChunkCountInTimeWindow(UUID playerId, int timeWindowSeconds) {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusSeconds(timeWindowSeconds);
+        int playerIndex = PlayerRegistry.find(playerId);
+        if (playerIndex < 0) {
+            return 0;
+        }
         
-        return recentChunks.values().stream()
-            .filter(chunk -> chunk.getTriggerPlayerId().equals(playerId))
-            .filter(chunk -> chunk.getGenerationTime().isAfter(cutoffTime))
-            .count();
+        long cutoffTime = MonotonicClock.nowMillis() - timeWindowSeconds * 1000L;
+        return recentChunks.countSince(playerIndex, cutoffTime);
     }
     
     /**
@@ -219,13 +313,14 @@ public class ChunkTracker implements Listener {
      */
     public void cleanup() {
 
-        if (cleanupTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(cleanupTaskId);
-            cleanupTaskId = -1;
-        }
+        SchedulerUtil.cancel(cleanupTask);
+        cleanupTask = null;
+        SchedulerUtil.cancel(pendingCleanupTask);
+        pendingCleanupTask = null;
         
 
         recentChunks.clear();
+        pendingChunks.clear();
         
         plugin.getLogger().info("区块追踪器已清理");
     }
@@ -238,21 +333,4 @@ public class ChunkTracker implements Listener {
     public int getTrackedChunkCount() {
         return recentChunks.size();
     }
-
-    /**
-     * 检查玩家是否在水中
-     * 使用多种方法检测水中状态，提高准确性
-     * 
-     * @param player 玩家
-     * @return 是否在水中
-     */
-    private boolean isPlayerInWater(Player player) {
-        if (player.isSwimming()) {
-            return true;
-        }
-        Material footBlock = player.getLocation().getBlock().getType();
-        Material eyeBlock = player.getEyeLocation().getBlock().getType();
-        boolean inWater = player.isInWater();
-        return footBlock == Material.WATER || eyeBlock == Material.WATER || inWater;
-    }
 } 
\ No newline at end of file
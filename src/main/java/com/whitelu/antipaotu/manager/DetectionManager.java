@@ -1,13 +1,19 @@
 package com.whitelu.antipaotu.manager;
 
 import com.whitelu.antipaotu.AntiPaotuPlugin;
+import com.whitelu.antipaotu.config.ConfigSnapshot;
 import com.whitelu.antipaotu.data.ChunkData;
 import com.whitelu.antipaotu.data.PlayerData;
+import com.whitelu.antipaotu.data.PlayerRegistry;
+import com.whitelu.antipaotu.data.PlayerState;
+import com.whitelu.antipaotu.util.DeadlineQueue;
+import com.whitelu.antipaotu.util.MonotonicClock;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 
-import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,34 +28,46 @@ public class DetectionManager {
     private final AntiPaotuPlugin plugin;
     private final Map<UUID, PlayerData> playerDataMap;
     
+    // 待检测玩家的截止时间队列（达到阈值或冷却期结束时加入）
+    private final DeadlineQueue<UUID> evaluationQueue;
+    
 
-    private int detectionTaskId = -1;
+    private ScheduledTask detectionTask;
+    private ScheduledTask cleanupTask;
     
     public DetectionManager(AntiPaotuPlugin plugin) {
         this.plugin = plugin;
         this.playerDataMap = new ConcurrentHashMap<>();
+        this.evaluationQueue = new DeadlineQueue<>();
     }
     
     /**
      * 启动检测任务
+     * 每tick只取出到期的玩家，单个玩家的检测交给玩家所在区域的线程执行
      */
     public void startDetectionTask() {
 
-        detectionTaskId = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
-            this::performDetectionCheck,
-            20L,
-            20L
-        ).getTaskId();
+        detectionTask = plugin.getSchedulerUtil().runGlobalTimer(
+            this::processDueEvaluations,
+            1L,
+            1L
+        );
+        
+        cleanupTask = plugin.getSchedulerUtil().runGlobalTimer(
+            this::cleanupOfflinePlayerData,
+            20L * 60,
+            20L * 60
+        );
     }
     
     /**
      * 停止检测任务
      */
     public void stopDetectionTask() {
-        if (detectionTaskId != -1) {
-            Bukkit.getScheduler().cancelTask(detectionTaskId);
-            detectionTaskId = -1;
-        }
+        SchedulerUtil.cancel(detectionTask);
+        detectionTask = null;
+        SchedulerUtil.cancel(cleanupTask);
+        cleanupTask = null;
     }
     
     /**
@@ -58,6 +76,7 @@ public class DetectionManager {
      * @param chunkData 区块数据
      */
     public void onChunkGenerated(ChunkData chunkData) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
         UUID playerId = chunkData.getTriggerPlayerId();
         
 
@@ -66,48 +85,67 @@ public class DetectionManager {
 
         playerData.addChunkToCurrentWindow(chunkData);
         
+        // 只有区块数量达到阈值时才安排检测，冷却期内则在冷却结束时检测
+        if (playerData.getCurrentWindowChunkCount() >= getExpectedChunks(getSnapshotViewDistance(playerId))) {
+            long cooldownRemaining = playerData.getCooldownRemainingMillis(config.getCooldownSeconds());
+            scheduleEvaluation(playerId, cooldownRemaining);
+        }
 
-
-        if (plugin.getConfigManager().isDebugVerbose()) {
+        if (config.isDebugVerbose()) {
             plugin.getLogger().info("检测到区块生成: " + chunkData.getChunkKey() + 
                                   " 触发玩家: " + chunkData.getTriggerPlayerName());
         }
     }
     
     /**
-     * 执行检测检查
+     * 安排一次检测
+     * 
+     * @param playerId 玩家ID
+     * @param delayMillis 延迟（毫秒）
      */
-    private void performDetectionCheck() {
-        for (PlayerData playerData : playerDataMap.values()) {
-
-            playerData.cleanupExpiredChunks(plugin.getConfigManager().getTimeWindow());
+    private void scheduleEvaluation(UUID playerId, long delayMillis) {
+        evaluationQueue.schedule(playerId, MonotonicClock.nowMillis() + delayMillis);
+    }
+    
+    /**
+     * 处理到期的检测
+     */
+    private void processDueEvaluations() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        long now = MonotonicClock.nowMillis();
+        UUID playerId;
+        while ((playerId = evaluationQueue.pollDue(now)) != null) {
+            PlayerData playerData = playerDataMap.get(playerId);
+            if (playerData == null) {
+                continue;
+            }
             
 
-            Player player = Bukkit.getPlayer(playerData.getPlayerId());
+            Player player = Bukkit.getPlayer(playerId);
             if (player == null || !player.isOnline()) {
                 continue;
             }
             
 
-            if (playerData.isInCooldown(plugin.getConfigManager().getCooldownSeconds())) {
-                if (plugin.getConfigManager().isDebugVerbose()) {
+            long cooldownRemaining = playerData.getCooldownRemainingMillis(config.getCooldownSeconds());
+            if (cooldownRemaining > 0) {
+                if (config.isDebugVerbose()) {
                     plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
-                                          " 仍在冷却期，跳过检测");
+                                          " 仍在冷却期，推迟检测");
                 }
+                scheduleEvaluation(playerId, cooldownRemaining);
                 continue;
             }
             
 
-            if (plugin.getConfigManager().isDebugVerbose()) {
+            if (config.isDebugVerbose()) {
                 plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
-                                      " 冷却期结束，开始检测 (当前区块数: " + 
+                                      " 开始检测 (当前区块数: " + 
                                       playerData.getCurrentWindowChunkCount() + ")");
             }
-            checkDetectionThreshold(playerData);
+            // 鞘翅和方块状态只能在玩家所在区域的线程上读取
+            plugin.getSchedulerUtil().runForEntity(player, () -> checkDetectionThreshold(playerData));
         }
-        
-
-        cleanupOfflinePlayerData();
     }
     
     /**
@@ -116,11 +154,15 @@ public class DetectionManager {
      * @param playerData 玩家数据
      */
     private void checkDetectionThreshold(PlayerData playerData) {
-        int timeWindow = plugin.getConfigManager().getTimeWindow();
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        int timeWindow = config.getTimeWindow();
         int chunkCount = playerData.getCurrentWindowChunkCount();
+        plugin.getMetricsRegistry().recordEvaluation();
         
-        // 如果没有区块生成，直接返回
+        // 如果没有区块生成，冷却结束后的检测到此结束，连续计数同样需要重置
         if (chunkCount == 0) {
+            resetContinuousCountBelowThreshold(config, playerData, chunkCount, 
+                getExpectedChunks(getSnapshotViewDistance(playerData.getPlayerId())));
             return;
         }
         
@@ -131,20 +173,23 @@ public class DetectionManager {
         }
         
         // 检查玩家是否在维度切换冷却期内
-        if (playerData.isInDimensionSwitchCooldown(plugin.getConfigManager().getDimensionSwitchCooldownSeconds())) {
-            if (plugin.getConfigManager().isDebugVerbose()) {
+        if (playerData.isInDimensionSwitchCooldown(config.getDimensionSwitchCooldownSeconds())) {
+            if (config.isDebugVerbose()) {
                 plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
                                       " 在维度切换冷却期内，跳过检测和通知");
             }
+            // 维度冷却结束后重新检测
+            scheduleEvaluation(playerData.getPlayerId(), playerData.getDimensionSwitchCooldownRemainingMillis(
+                config.getDimensionSwitchCooldownSeconds()));
             return;
         }
         
         // 检查玩家是否在水中（如果启用了此功能）
-        if (plugin.getConfigManager().isDisableDetectionInWater() && isPlayerInWater(player)) {
+        if (config.isDisableDetectionInWater() && isPlayerInWater(player)) {
             // 如果玩家在水中，重置连续计数（类似鞘翅不飞行的处理）
             if (playerData.getContinuousCount() > 0) {
                 playerData.resetContinuousCount();
-                if (plugin.getConfigManager().isDebugEnabled()) {
+                if (config.isDebugEnabled()) {
                     plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
                                           " 在水中，连续计数已重置");
                 }
@@ -157,7 +202,7 @@ public class DetectionManager {
             // 如果不在使用鞘翅，重置连续计数
             if (playerData.getContinuousCount() > 0) {
                 playerData.resetContinuousCount();
-                if (plugin.getConfigManager().isDebugEnabled()) {
+                if (config.isDebugEnabled()) {
                     plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
                                           " 停止使用鞘翅，连续计数已重置");
                 }
@@ -166,60 +211,67 @@ public class DetectionManager {
         }
         
         int viewDistance = getPlayerViewDistance(player);
-        int expectedChunks = (2 * viewDistance + 1) * 5; // n=(2v+1)×5
+        int expectedChunks = getExpectedChunks(viewDistance);
         
         if (chunkCount >= expectedChunks) {
             // 触发检测
-            triggerDetection(playerData, timeWindow, chunkCount);
+            triggerDetection(config, playerData, timeWindow, chunkCount);
         } else {
-            // 如果在冷却期后未再次触发阈值，重置连续计数
-            if (playerData.getContinuousCount() > 0 && playerData.getLastDetectionTime() != null) {
-                playerData.resetContinuousCount();
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
-                                          " 在冷却期后未再次触发阈值，连续计数已重置");
-                }
-            }
+            resetContinuousCountBelowThreshold(config, playerData, chunkCount, expectedChunks);
+        }
+    }
+    
+    /**
+     * 如果在冷却期后未再次触发阈值，重置连续计数
+     */
+    private void resetContinuousCountBelowThreshold(ConfigSnapshot config, PlayerData playerData, 
+                                                    int chunkCount, int expectedChunks) {
+        if (playerData.resetContinuousCountIfBelow(chunkCount, expectedChunks) && config.isDebugEnabled()) {
+            plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
+                                  " 在冷却期后未再次触发阈值，连续计数已重置");
         }
     }
     
     /**
      * 触发检测
      * 
+     * @param config 本次检测使用的配置快照
      * @param playerData 玩家数据
      * @param timeWindow 时间窗口
      * @param chunkCount 区块数量
      */
-    private void triggerDetection(PlayerData playerData, int timeWindow, int chunkCount) {
-        playerData.triggerDetection();
+    private void triggerDetection(ConfigSnapshot config, PlayerData playerData, int timeWindow, int chunkCount) {
+        playerData.triggerDetection((config.getCooldownSeconds() + timeWindow) * 1000L);
+        plugin.getMetricsRegistry().recordDetection();
         int continuousCount = playerData.getContinuousCount();
         
-        // 设置冷却状态
+        // 设置冷却状态，冷却结束时再次检测（再次触发或重置连续计数）
         playerData.setCooldown(true);
+        scheduleEvaluation(playerData.getPlayerId(), config.getCooldownSeconds() * 1000L);
         
         // 检查是否在维度切换冷却期内
         boolean inDimensionCooldown = playerData.isInDimensionSwitchCooldown(
-            plugin.getConfigManager().getDimensionSwitchCooldownSeconds());
+            config.getDimensionSwitchCooldownSeconds());
         
         // 只有不在维度切换冷却期内才发送通知和进行封禁
         if (!inDimensionCooldown) {
             // 发送检测通知
-            sendDetectionNotifications(playerData, timeWindow, chunkCount, continuousCount);
+            sendDetectionNotifications(config, playerData, timeWindow, chunkCount, continuousCount);
             
             // 检查是否达到封禁阈值
-            if (continuousCount >= plugin.getConfigManager().getContinuousThreshold()) {
+            if (continuousCount >= config.getContinuousThreshold()) {
                 plugin.getBanManager().banPlayer(playerData.getPlayerId(), playerData.getPlayerName());
-                sendBanNotifications(playerData);
+                sendBanNotifications(config, playerData);
             }
         } else {
             // 在维度切换冷却期内，只记录到调试日志
-            if (plugin.getConfigManager().isDebugEnabled()) {
+            if (config.isDebugEnabled()) {
                 plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
                                       " 在维度切换冷却期内触发检测，但不发送通知和封禁。连续次数: " + continuousCount);
             }
         }
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
+        if (config.isDebugEnabled()) {
             plugin.getLogger().info("玩家 " + playerData.getPlayerName() + 
                                   " 触发检测，连续次数: " + continuousCount + 
                                   (inDimensionCooldown ? " (维度冷却期)" : ""));
@@ -229,38 +281,30 @@ public class DetectionManager {
     /**
      * 发送检测通知
      */
-    private void sendDetectionNotifications(PlayerData playerData, int timeWindow, 
+    private void sendDetectionNotifications(ConfigSnapshot config, PlayerData playerData, int timeWindow, 
                                           int chunkCount, int continuousCount) {
         String playerName = playerData.getPlayerName();
         
 
-        String consoleMsg = plugin.getConfigManager().getMessage("console.detection", 
-            "[Anti-paotu] 已检测到玩家%player%触发跑图阈值，在%time%秒内生成了%chunks%个区块，连续次数%count%");
-        consoleMsg = consoleMsg.replace("%player%", playerName)
-                              .replace("%time%", String.valueOf(timeWindow))
-                              .replace("%chunks%", String.valueOf(chunkCount))
-                              .replace("%count%", String.valueOf(continuousCount));
-        plugin.getLogger().info(consoleMsg);
-        
+        String time = String.valueOf(timeWindow);
+        String chunks = String.valueOf(chunkCount);
+        String count = String.valueOf(continuousCount);
 
-        String adminMsg = plugin.getConfigManager().getMessage("admin.detection", 
-            "[Anti-paotu] 已检测到玩家%player%触发跑图阈值，在%time%秒内生成了%chunks%个区块，连续次数%count%");
-        adminMsg = adminMsg.replace("%player%", playerName)
-                          .replace("%time%", String.valueOf(timeWindow))
-                          .replace("%chunks%", String.valueOf(chunkCount))
-                          .replace("%count%", String.valueOf(continuousCount));
+        String consoleMsg = config.getMessageTemplate("console.detection", 
+            "[Anti-paotu] 已检测到玩家%player%触发跑图阈值，在%time%秒内生成了%chunks%个区块，连续次数%count%")
+            .render("%player%", playerName, "%time%", time, "%chunks%", chunks, "%count%", count);
+        plugin.getLogger().info(consoleMsg);
         
 
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (player.hasPermission("antipaotu.notice")) {
-                player.sendMessage(adminMsg);
-            }
-        }
+        String adminMsg = config.getMessageTemplate("admin.detection", 
+            "[Anti-paotu] 已检测到玩家%player%触发跑图阈值，在%time%秒内生成了%chunks%个区块，连续次数%count%")
+            .render("%player%", playerName, "%time%", time, "%chunks%", chunks, "%count%", count);
+        plugin.getMessageUtil().broadcastNotice(adminMsg);
         
 
         Player targetPlayer = Bukkit.getPlayer(playerData.getPlayerId());
         if (targetPlayer != null) {
-            String warningMsg = plugin.getConfigManager().getFormattedMessage("player.warning", 
+            String warningMsg = config.getFormattedMessage("player.warning", 
                 "§c已触发跑图阈值，如果你连续触发此阈值会导致你被临时封禁！");
             targetPlayer.sendMessage(warningMsg);
         }
@@ -272,31 +316,46 @@ public class DetectionManager {
     /**
      * 发送封禁通知
      */
-    private void sendBanNotifications(PlayerData playerData) {
+    private void sendBanNotifications(ConfigSnapshot config, PlayerData playerData) {
         String playerName = playerData.getPlayerName();
         
 
-        String consoleMsg = plugin.getConfigManager().getMessage("console.ban", 
-            "[Anti-paotu] 已将连续多次触发跑图阈值的玩家%player%封禁");
-        consoleMsg = consoleMsg.replace("%player%", playerName);
+        String consoleMsg = config.getMessageTemplate("console.ban", 
+            "[Anti-paotu] 已将连续多次触发跑图阈值的玩家%player%封禁")
+            .render("%player%", playerName);
         plugin.getLogger().info(consoleMsg);
         
 
-        String adminMsg = plugin.getConfigManager().getMessage("admin.ban", 
-            "[Anti-paotu] 已将连续多次触发跑图阈值的玩家%player%封禁");
-        adminMsg = adminMsg.replace("%player%", playerName);
-        
-
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (player.hasPermission("antipaotu.notice")) {
-                player.sendMessage(adminMsg);
-            }
-        }
+        String adminMsg = config.getMessageTemplate("admin.ban", 
+            "[Anti-paotu] 已将连续多次触发跑图阈值的玩家%player%封禁")
+            .render("%player%", playerName);
+        plugin.getMessageUtil().broadcastNotice(adminMsg);
         
 
         plugin.getOneBotManager().sendBanNotification(playerName);
     }
     
+    /**
+     * 计算触发阈值所需的区块数量
+     * 
+     * @param viewDistance 视距
+     * @return 区块数量 n=(2v+1)×5
+     */
+    private int getExpectedChunks(int viewDistance) {
+        return (2 * viewDistance + 1) * 5;
+    }
+    
+    /**
+     * 从玩家状态快照获取视距，不调用Bukkit API
+     */
+    private int getSnapshotViewDistance(UUID playerId) {
+        PlayerState state = plugin.getPlayerStateTracker().getState(playerId);
+        if (state == null || state.getViewDistance() <= 0) {
+            return Bukkit.getViewDistance();
+        }
+        return state.getViewDistance();
+    }
+    
     /**
      * 获取玩家的视距
      */
@@ -313,18 +372,22 @@ public class DetectionManager {
      */
     private PlayerData getOrCreatePlayerData(UUID playerId, String playerName) {
         return playerDataMap.computeIfAbsent(playerId, 
-            id -> new PlayerData(id, playerName));
+            id -> new PlayerData(id, playerName, plugin.getConfigManager().getTimeWindow()));
     }
     
     /**
-     * 清理离线玩家的数据
+     * 清理离线玩家的数据，并释放其玩家索引
+     * 索引在区块记录全部过期后才会重新分配，期间仍可能被旧记录引用
      */
     private void cleanupOfflinePlayerData() {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(30);
+        long now = MonotonicClock.nowMillis();
+        long cutoffTime = now - 30 * 60 * 1000L;
+        long reusableAt = now + plugin.getChunkTracker().getRecordRetentionMillis();
         
         playerDataMap.entrySet().removeIf(entry -> {
             UUID playerId = entry.getKey();
             PlayerData playerData = entry.getValue();
+            playerData.cleanupExpiredChunks(plugin.getConfigManager().getTimeWindow());
             
 
             Player player = Bukkit.getPlayer(playerId);
@@ -333,15 +396,30 @@ public class DetectionManager {
             }
             
 
-            LocalDateTime lastActivity = playerData.getLastDetectionTime();
-            if (lastActivity == null) {
+            long lastActivity = playerData.getLastDetectionTime();
+            if (lastActivity == MonotonicClock.NEVER) {
                 lastActivity = playerData.getCurrentWindowStart();
             }
             
-            return lastActivity == null || lastActivity.isBefore(cutoffTime);
+            if (lastActivity == MonotonicClock.NEVER || lastActivity < cutoffTime) {
+                PlayerRegistry.release(playerId, reusableAt);
+                return true;
+            }
+            return false;
         });
     }
     
+    /**
+     * 按新的时间窗口调整所有玩家的检测窗口
+     * 
+     * @param timeWindowSeconds 时间窗口（秒）
+     */
+    public void resizeDetectionWindows(int timeWindowSeconds) {
+        for (PlayerData playerData : playerDataMap.values()) {
+            playerData.resizeWindow(timeWindowSeconds);
+        }
+    }
+    
     /**
      * 当玩家离开时清理数据
      */
@@ -351,6 +429,7 @@ public class DetectionManager {
 
             playerData.resetContinuousCount();
         }
+        evaluationQueue.remove(playerId);
     }
     
     /**
@@ -373,6 +452,7 @@ public class DetectionManager {
     public void cleanup() {
         stopDetectionTask();
         playerDataMap.clear();
+        evaluationQueue.clear();
     }
 
     /**
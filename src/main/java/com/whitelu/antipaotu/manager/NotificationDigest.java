@@ -0,0 +1,135 @@
+package com.whitelu.antipaotu.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OneBot通知汇总
+ * 在汇总窗口内累积检测和封禁通知，窗口结束时合并为一条消息发送。
+ * 非线程安全，由 OneBotManager 加锁访问
+ */
+public class NotificationDigest {
+
+    private final Map<String, PlayerEntry> detections;
+    private final List<String> banMessages;
+
+    public NotificationDigest() {
+        this.detections = new LinkedHashMap<>();
+        this.banMessages = new ArrayList<>();
+    }
+
+    /**
+     * 记录一次检测
+     *
+     * @param playerName 玩家名
+     * @param timeWindow 时间窗口
+     * @param chunkCount 区块数量
+     * @param continuousCount 连续次数
+     * @return 汇总中的玩家数量
+     */
+    public int addDetection(String playerName, int timeWindow, int chunkCount, int continuousCount) {
+        PlayerEntry entry = detections.computeIfAbsent(playerName, PlayerEntry::new);
+        entry.detections++;
+        entry.totalChunks += chunkCount;
+        entry.timeWindow = timeWindow;
+        entry.lastChunks = chunkCount;
+        entry.continuousCount = continuousCount;
+        return detections.size();
+    }
+
+    /**
+     * 记录一条封禁通知
+     *
+     * @param message 已格式化的封禁消息
+     */
+    public void addBan(String message) {
+        banMessages.add(message);
+    }
+
+    /**
+     * 检查汇总是否为空
+     */
+    public boolean isEmpty() {
+        return detections.isEmpty() && banMessages.isEmpty();
+    }
+
+    /**
+     * 取出并清空当前汇总
+     *
+     * @return 汇总内容
+     */
+    public Snapshot drain() {
+        Snapshot snapshot = new Snapshot(new ArrayList<>(detections.values()), new ArrayList<>(banMessages));
+        detections.clear();
+        banMessages.clear();
+        return snapshot;
+    }
+
+    /**
+     * 单个玩家的检测汇总
+     */
+    public static class PlayerEntry {
+        private final String playerName;
+        private int detections;
+        private int totalChunks;
+        private int timeWindow;
+        private int lastChunks;
+        private int continuousCount;
+
+        PlayerEntry(String playerName) {
+            this.playerName = playerName;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public int getDetections() {
+            return detections;
+        }
+
+        public int getTotalChunks() {
+            return totalChunks;
+        }
+
+        public int getTimeWindow() {
+            return timeWindow;
+        }
+
+        public int getLastChunks() {
+            return lastChunks;
+        }
+
+        public int getContinuousCount() {
+            return continuousCount;
+        }
+    }
+
+    /**
+     * 取出的汇总内容
+     */
+    public static class Snapshot {
+        private final List<PlayerEntry> detections;
+        private final List<String> banMessages;
+
+        Snapshot(List<PlayerEntry> detections, List<String> banMessages) {
+            this.detections = Collections.unmodifiableList(detections);
+            this.banMessages = Collections.unmodifiableList(banMessages);
+        }
+
+        public List<PlayerEntry> getDetections() {
+            return detections;
+        }
+
+        public List<String> getBanMessages() {
+            return banMessages;
+        }
+
+        public boolean isEmpty() {
+            return detections.isEmpty() && banMessages.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.whitelu.antipaotu.manager;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OneBot待发送消息队列
+ * 有界队列，队列满时按溢出策略处理新消息，保证OneBot接口无响应时积压的消息和线程数量都有上限
+ */
+public class NotificationQueue {
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃最早的消息
+         */
+        DROP_OLDEST,
+        /**
+         * 与队列中已有消息相同的新消息直接丢弃，队列满时丢弃新消息
+         */
+        DROP_DUPLICATES,
+        /**
+         * 调用线程等待空位，超过等待上限后丢弃新消息
+         */
+        BLOCK;
+
+        /**
+         * 解析配置中的策略名称
+         *
+         * @param name 策略名称，如 drop-oldest
+         * @return 策略，无法识别时返回 null
+         */
+        public static OverflowPolicy parse(String name) {
+            if (name == null) {
+                return null;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final ArrayDeque<String> messages;
+
+    private final AtomicLong enqueuedCount;
+    private final AtomicLong droppedCount;
+
+    // 以下字段由 lock 保护
+    private int capacity;
+    private OverflowPolicy policy;
+    private long blockTimeoutMillis;
+
+    public NotificationQueue(int capacity, OverflowPolicy policy, long blockTimeoutMillis) {
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.messages = new ArrayDeque<>();
+        this.enqueuedCount = new AtomicLong();
+        this.droppedCount = new AtomicLong();
+        configure(capacity, policy, blockTimeoutMillis);
+    }
+
+    /**
+     * 更新队列设置，容量变小时已在队列中的消息不会被丢弃
+     *
+     * @param capacity 容量
+     * @param policy 溢出策略
+     * @param blockTimeoutMillis BLOCK 策略下的最长等待时间（毫秒）
+     */
+    public void configure(int capacity, OverflowPolicy policy, long blockTimeoutMillis) {
+        lock.lock();
+        try {
+            this.capacity = Math.max(1, capacity);
+            this.policy = policy;
+            this.blockTimeoutMillis = Math.max(0L, blockTimeoutMillis);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 添加一条消息
+     *
+     * @param message 消息内容
+     * @return 消息是否进入队列；DROP_OLDEST 策略下总是成功，但可能挤掉最早的消息
+     */
+    public boolean offer(String message) {
+        lock.lock();
+        try {
+            switch (policy) {
+                case DROP_OLDEST:
+                    if (messages.size() >= capacity) {
+                        messages.pollFirst();
+                        droppedCount.incrementAndGet();
+                    }
+                    break;
+                case DROP_DUPLICATES:
+                    if (messages.size() >= capacity || messages.contains(message)) {
+                        droppedCount.incrementAndGet();
+                        return false;
+                    }
+                    break;
+                case BLOCK:
+                    long remaining = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+                    while (messages.size() >= capacity) {
+                        if (remaining <= 0L) {
+                            droppedCount.incrementAndGet();
+                            return false;
+                        }
+                        remaining = notFull.awaitNanos(remaining);
+                    }
+                    break;
+            }
+
+            messages.addLast(message);
+            enqueuedCount.incrementAndGet();
+            notEmpty.signal();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCount.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出一条消息，队列为空时最多等待指定时间
+     *
+     * @param timeout 等待时间
+     * @param unit 时间单位
+     * @return 消息，超时返回 null
+     */
+    public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (messages.isEmpty()) {
+                if (remaining <= 0L) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+
+            String message = messages.pollFirst();
+            notFull.signal();
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前排队的消息数量
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取队列容量
+     */
+    public int getCapacity() {
+        lock.lock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取累计进入队列的消息数量
+     */
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    /**
+     * 获取累计因队列满或重复而丢弃的消息数量
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
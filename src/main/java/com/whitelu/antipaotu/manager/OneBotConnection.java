@@ -0,0 +1,305 @@
+package com.whitelu.antipaotu.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.whitelu.antipaotu.AntiPaotuPlugin;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OneBot WebSocket 长连接
+ * 所有请求复用同一个连接，按 echo 字段匹配响应；
+ * 由 WebSocket ping 维持心跳，断开后按指数退避自动重连，未连接时的请求在连接建立后发送
+ */
+public class OneBotConnection implements OneBotTransport {
+
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 1000L;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 60000L;
+
+    private final AntiPaotuPlugin plugin;
+    private final URI uri;
+    private final String accessToken;
+    private final int connectTimeoutSeconds;
+    private final int heartbeatSeconds;
+    private final Gson gson;
+
+    // 等待响应的请求，按 echo 索引
+    private final Map<String, PendingRequest> pendingRequests;
+    // 连接建立前排队的请求
+    private final Queue<PendingRequest> outbox;
+    private final AtomicLong echoSequence;
+    private final ScheduledExecutorService reconnectScheduler;
+
+    private volatile WebSocketClient client;
+    private volatile boolean closed;
+
+    // 以下字段由 this 保护
+    private boolean connecting;
+    private long reconnectDelayMillis;
+
+    public OneBotConnection(AntiPaotuPlugin plugin, URI uri, String accessToken, 
+                            int connectTimeoutSeconds, int heartbeatSeconds) {
+        this.plugin = plugin;
+        this.uri = uri;
+        this.accessToken = accessToken;
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.gson = new Gson();
+        this.pendingRequests = new ConcurrentHashMap<>();
+        this.outbox = new ConcurrentLinkedQueue<>();
+        this.echoSequence = new AtomicLong();
+        this.reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+        this.reconnectScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("OneBot-Reconnect");
+            return thread;
+        });
+    }
+
+    /**
+     * 发送一个 OneBot 动作请求
+     *
+     * @param action 动作名称
+     * @param params 参数
+     * @param timeoutMillis 超时时间（毫秒），超时后返回的 future 以 TimeoutException 结束
+     * @return 响应内容
+     */
+    @Override
+    public CompletableFuture<JsonObject> request(String action, JsonObject params, long timeoutMillis) {
+        String echo = "antipaotu_" + echoSequence.incrementAndGet();
+
+        JsonObject request = new JsonObject();
+        request.addProperty("action", action);
+        request.add("params", params);
+        request.addProperty("echo", echo);
+
+        PendingRequest pending = new PendingRequest(gson.toJson(request));
+        pendingRequests.put(echo, pending);
+        pending.future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                      .whenComplete((response, throwable) -> pendingRequests.remove(echo));
+
+        if (closed) {
+            pending.future.completeExceptionally(new IllegalStateException("OneBot连接已关闭"));
+            return pending.future;
+        }
+
+        if (!trySend(pending)) {
+            outbox.add(pending);
+            connect();
+            // 排队期间连接可能刚好建立
+            if (isOpen()) {
+                flushOutbox();
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * 检查连接是否已建立
+     */
+    public boolean isOpen() {
+        WebSocketClient current = client;
+        return current != null && current.isOpen();
+    }
+
+    /**
+     * 获取连接地址
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * 获取访问令牌
+     */
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    /**
+     * 关闭连接，未完成的请求全部失败
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reconnectScheduler.shutdownNow();
+
+        WebSocketClient current = client;
+        if (current != null) {
+            current.close();
+        }
+
+        IllegalStateException reason = new IllegalStateException("OneBot连接已关闭");
+        for (PendingRequest pending : pendingRequests.values()) {
+            pending.future.completeExceptionally(reason);
+        }
+        outbox.clear();
+    }
+
+    private boolean trySend(PendingRequest pending) {
+        WebSocketClient current = client;
+        if (current == null || !current.isOpen()) {
+            return false;
+        }
+
+        try {
+            current.send(pending.payload);
+            pending.sent = true;
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void flushOutbox() {
+        PendingRequest pending;
+        while ((pending = outbox.poll()) != null) {
+            // 排队期间已超时的请求不再发送
+            if (pending.future.isDone()) {
+                continue;
+            }
+            if (!trySend(pending)) {
+                outbox.add(pending);
+                return;
+            }
+        }
+    }
+
+    private synchronized void connect() {
+        if (closed || connecting || isOpen()) {
+            return;
+        }
+        connecting = true;
+
+        Map<String, String> headers = new HashMap<>();
+        if (accessToken != null && !accessToken.isEmpty()) {
+            headers.put("Authorization", "Bearer " + accessToken);
+        }
+        WebSocketClient newClient = new Client(headers);
+        newClient.setConnectionLostTimeout(heartbeatSeconds);
+        client = newClient;
+        newClient.connect();
+    }
+
+    private synchronized void onConnected() {
+        connecting = false;
+        reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+    }
+
+    private synchronized void scheduleReconnect() {
+        connecting = false;
+        if (closed) {
+            return;
+        }
+
+        long delay = reconnectDelayMillis;
+        reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("OneBot连接已断开，" + delay + "毫秒后重连");
+        }
+
+        try {
+            reconnectScheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception ignored) {
+            // 调度器已关闭
+        }
+    }
+
+    /**
+     * 处理收到的消息，只处理带有 echo 的响应，忽略事件推送
+     */
+    private void handleMessage(String message) {
+        if (plugin.getConfigManager().isDebugVerbose()) {
+            plugin.getLogger().info("OneBot响应: " + message);
+        }
+
+        JsonObject response;
+        try {
+            response = gson.fromJson(message, JsonObject.class);
+        } catch (Exception e) {
+            return;
+        }
+        if (response == null || !response.has("echo") || !response.get("echo").isJsonPrimitive()) {
+            return;
+        }
+
+        PendingRequest pending = pendingRequests.remove(response.get("echo").getAsString());
+        if (pending != null) {
+            pending.future.complete(response);
+        }
+    }
+
+    /**
+     * 连接断开时，已发出但未收到响应的请求直接失败，排队中的请求等待重连
+     */
+    private void failSentRequests(String reason) {
+        RuntimeException exception = new RuntimeException("连接关闭: " + reason);
+        for (PendingRequest pending : pendingRequests.values()) {
+            if (pending.sent) {
+                pending.future.completeExceptionally(exception);
+            }
+        }
+    }
+
+    private class Client extends WebSocketClient {
+
+        Client(Map<String, String> headers) {
+            super(uri, new Draft_6455(), headers, connectTimeoutSeconds * 1000);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            onConnected();
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("OneBot连接已建立: " + uri);
+            }
+            flushOutbox();
+        }
+
+        @Override
+        public void onMessage(String message) {
+            handleMessage(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            failSentRequests(reason);
+            scheduleReconnect();
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("OneBot连接错误: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 等待响应的请求
+     */
+    private static class PendingRequest {
+        private final String payload;
+        private final CompletableFuture<JsonObject> future;
+        private volatile boolean sent;
+
+        PendingRequest(String payload) {
+            this.payload = payload;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.whitelu.antipaotu.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * OneBot HTTP API 请求通道
+ * 每个动作以 POST {http-url}/{action} 发送，所有请求共用一个 HttpClient，
+ * 通过 HTTP/1.1 keep-alive 复用连接，请求异步发送，不占用等待线程。
+ * 只依赖日志记录器和调试开关，不引用插件实例，可以脱离服务器单独测试
+ */
+public class OneBotHttpTransport implements OneBotTransport {
+
+    private final Logger logger;
+    private final BooleanSupplier debugVerbose;
+    private final URI baseUri;
+    private final String accessToken;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final Gson gson;
+
+    /**
+     * @param logger 日志记录器
+     * @param debugVerbose 是否输出请求和响应内容，每次请求时读取
+     * @param baseUri API 地址
+     * @param accessToken 访问令牌，为空时不发送 Authorization 头
+     * @param connectTimeoutSeconds 连接超时（秒）
+     */
+    public OneBotHttpTransport(Logger logger, BooleanSupplier debugVerbose, URI baseUri, 
+                               String accessToken, int connectTimeoutSeconds) {
+        this.logger = logger;
+        this.debugVerbose = debugVerbose;
+        this.baseUri = baseUri;
+        this.accessToken = accessToken;
+        this.gson = new Gson();
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("AntiPaotu-OneBot-Http-", 0).factory());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> request(String action, JsonObject params, long timeoutMillis) {
+        String body = gson.toJson(params);
+        if (debugVerbose.getAsBoolean()) {
+            logger.info("OneBot请求: " + action + " " + body);
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(resolve(action))
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        if (accessToken != null && !accessToken.isEmpty()) {
+            builder.header("Authorization", "Bearer " + accessToken);
+        }
+
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                     .thenApply(this::parseResponse);
+    }
+
+    /**
+     * 获取 API 地址
+     */
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public void close() {
+        client.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private JsonObject parseResponse(HttpResponse<String> response) {
+        if (debugVerbose.getAsBoolean()) {
+            logger.info("OneBot响应: " + response.statusCode() + " " + response.body());
+        }
+
+        // OneBot v11 的 HTTP API 用状态码表示鉴权失败和动作不存在等错误
+        if (response.statusCode() / 100 != 2) {
+            throw new RuntimeException("HTTP " + response.statusCode());
+        }
+
+        JsonObject result = gson.fromJson(response.body(), JsonObject.class);
+        if (result == null) {
+            throw new RuntimeException("响应为空");
+        }
+        return result;
+    }
+
+    private URI resolve(String action) {
+        String base = baseUri.toString();
+        return URI.create(base.endsWith("/") ? base + action : base + "/" + action);
+    }
+}
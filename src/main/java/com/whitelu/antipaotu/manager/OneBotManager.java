@@ -1,40 +1,76 @@
 package com.whitelu.antipaotu.manager;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.whitelu.antipaotu.AntiPaotuPlugin;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.handshake.ServerHandshake;
+import com.whitelu.antipaotu.config.ConfigSnapshot;
+import com.whitelu.antipaotu.util.MonotonicClock;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * OneBot管理器类
- * 负责处理与OneBot服务器的WebSocket连接和消息发送
+ * 负责处理与OneBot服务器的连接和消息发送，按配置使用WebSocket长连接或HTTP API。
+ * 待发送的消息进入有界队列，由一个虚拟线程按顺序取出，异步发送到各个目标，
+ * 每个目标的进行中请求数有上限，慢的目标只会让自己的消息暂缓合并，不会阻塞发送线程
 
  */
 public class OneBotManager {
     
+    /**
+     * 关闭时检查进行中请求是否完成的间隔（毫秒）
+     */
+    private static final long SHUTDOWN_RECHECK_MILLIS = 100L;
+    
     private final AntiPaotuPlugin plugin;
-    private final Gson gson;
-    private final ExecutorService executor;
+    
+    // 请求通道，首次发送时建立，由 this 保护
+    private OneBotTransport transport;
+    // 建立通道时使用的配置，变化时重新建立
+    private String transportKey;
+    
+    // 汇总窗口内的通知，由 digestLock 保护
+    private final Object digestLock = new Object();
+    private final NotificationDigest digest;
+    private ScheduledTask digestFlushTask;
+    
+    // 发送队列和发送线程，首次发送时创建，由 this 保护
+    private NotificationQueue queue;
+    private Thread dispatcher;
+    private volatile boolean running;
+    
+    // 发送目标，按 OneBotTarget.key 索引
+    private final Map<String, OneBotTarget> targets;
+    
+    private final AtomicLong sentCount;
+    private final AtomicLong failedCount;
+    // 上次输出丢弃警告时的丢弃数量和时间，用于限制警告频率
+    private long reportedDropCount;
+    private long lastDropWarning;
     
     public OneBotManager(AntiPaotuPlugin plugin) {
         this.plugin = plugin;
-        this.gson = new Gson();
-        this.executor = Executors.newCachedThreadPool(r -> {
-            Thread thread = new Thread(r);
-            thread.setDaemon(true);
-            thread.setName("OneBot-Worker");
-            return thread;
-        });
+        this.digest = new NotificationDigest();
+        this.targets = new ConcurrentHashMap<>();
+        this.sentCount = new AtomicLong();
+        this.failedCount = new AtomicLong();
     }
     
     /**
@@ -50,15 +86,35 @@ public class OneBotManager {
             return;
         }
         
-        String message = plugin.getConfigManager().getOneBotMessage("detection", 
-            "已检测到玩家[%player%]触发跑图阈值，在%time%秒内生成了%chunks%个区块，连续次数%count%");
+        int windowSeconds = plugin.getConfigManager().getOneBotDigestWindowSeconds();
+        if (windowSeconds <= 0) {
+            sendMessage(formatDetectionMessage(playerName, timeWindow, chunkCount, continuousCount));
+            return;
+        }
         
-        message = message.replace("%player%", playerName)
-                         .replace("%time%", String.valueOf(timeWindow))
-                         .replace("%chunks%", String.valueOf(chunkCount))
-                         .replace("%count%", String.valueOf(continuousCount));
+        boolean flushNow;
+        synchronized (digestLock) {
+            boolean wasEmpty = digest.isEmpty();
+            int players = digest.addDetection(playerName, timeWindow, chunkCount, continuousCount);
+            flushNow = players >= plugin.getConfigManager().getOneBotDigestMaxPlayers();
+            if (wasEmpty && !flushNow) {
+                // 窗口从第一条通知开始计时，最迟在窗口结束时发送
+                digestFlushTask = plugin.getSchedulerUtil().runAsyncLater(this::flushDigest, windowSeconds * 20L);
+            }
+        }
         
-        sendMessage(message);
+        if (flushNow) {
+            flushDigest();
+        }
+    }
+    
+    private String formatDetectionMessage(String playerName, int timeWindow, int chunkCount, int continuousCount) {
+        return plugin.getConfigManager().getOneBotMessageTemplate("detection", 
+            "已检测到玩家[%player%]触发跑图阈值，在%time%秒内生成了%chunks%个区块，连续次数%count%")
+            .render("%player%", playerName,
+                    "%time%", String.valueOf(timeWindow),
+                    "%chunks%", String.valueOf(chunkCount),
+                    "%count%", String.valueOf(continuousCount));
     }
     
     /**
@@ -71,154 +127,267 @@ public class OneBotManager {
             return;
         }
         
-        String message = plugin.getConfigManager().getOneBotMessage("ban", 
-            "由于多次触发跑图阈值，玩家[%player%]被暂时禁止进入服务器");
+        String message = plugin.getConfigManager().getOneBotMessageTemplate("ban", 
+            "由于多次触发跑图阈值，玩家[%player%]被暂时禁止进入服务器")
+            .render("%player%", playerName);
         
-        message = message.replace("%player%", playerName);
+        if (plugin.getConfigManager().getOneBotDigestWindowSeconds() <= 0) {
+            sendMessage(message);
+            return;
+        }
         
-        sendMessage(message);
+        // 封禁通知与已累积的检测通知一起立即发送
+        synchronized (digestLock) {
+            digest.addBan(message);
+        }
+        flushDigest();
     }
     
     /**
-     * 发送消息到配置的QQ群和私聊
+     * 立即发送汇总窗口内累积的通知
+     */
+    private void flushDigest() {
+        NotificationDigest.Snapshot snapshot;
+        synchronized (digestLock) {
+            SchedulerUtil.cancel(digestFlushTask);
+            digestFlushTask = null;
+            snapshot = digest.drain();
+        }
+        
+        if (!snapshot.isEmpty()) {
+            sendMessage(formatDigest(snapshot));
+        }
+    }
+    
+    /**
+     * 将汇总内容格式化为一条消息
+     * 只有一次检测时使用普通的检测消息，否则合并为"玩家×次数 (区块数)"列表
+     */
+    private String formatDigest(NotificationDigest.Snapshot snapshot) {
+        List<String> lines = new ArrayList<>();
+        List<NotificationDigest.PlayerEntry> detections = snapshot.getDetections();
+        
+        if (detections.size() == 1 && detections.get(0).getDetections() == 1) {
+            NotificationDigest.PlayerEntry entry = detections.get(0);
+            lines.add(formatDetectionMessage(entry.getPlayerName(), entry.getTimeWindow(), 
+                                             entry.getLastChunks(), entry.getContinuousCount()));
+        } else if (!detections.isEmpty()) {
+            StringBuilder details = new StringBuilder();
+            for (NotificationDigest.PlayerEntry entry : detections) {
+                if (details.length() > 0) {
+                    details.append(", ");
+                }
+                details.append(entry.getPlayerName())
+                       .append('×').append(entry.getDetections())
+                       .append(" (").append(entry.getTotalChunks()).append("区块)");
+            }
+            
+            lines.add(plugin.getConfigManager().getOneBotMessageTemplate("digest", 
+                "%players%名玩家触发跑图阈值: %details%")
+                .render("%players%", String.valueOf(detections.size()),
+                        "%details%", details.toString()));
+        }
+        
+        lines.addAll(snapshot.getBanMessages());
+        return String.join("\n", lines);
+    }
+    
+    /**
+     * 将消息放入发送队列
+     * 队列满时按配置的溢出策略处理
      * 
      * @param message 消息内容
      */
     private void sendMessage(String message) {
-        executor.submit(() -> {
+        NotificationQueue queue = getQueue();
+        if (queue == null) {
+            return;
+        }
+        
+        queue.offer(message);
+        reportDrops(queue);
+    }
+    
+    /**
+     * 获取发送队列，首次调用时启动发送线程
+     * 
+     * @return 发送队列，管理器已关闭时返回 null
+     */
+    private synchronized NotificationQueue getQueue() {
+        if (queue == null) {
+            queue = new NotificationQueue(plugin.getConfigManager().getOneBotQueueCapacity(),
+                                          plugin.getConfigManager().getOneBotQueueOverflowPolicy(),
+                                          plugin.getConfigManager().getOneBotQueueBlockTimeout());
+            running = true;
+            dispatcher = Thread.ofVirtual().name("AntiPaotu-OneBot").start(this::dispatchLoop);
+        }
+        return running ? queue : null;
+    }
+    
+    /**
+     * 发送线程：逐条取出消息交给各目标异步发送，不等待请求完成。
+     * 每个目标的进行中请求数有上限，因此正在发送的请求总数有界，
+     * 接口无响应的目标上的消息暂缓合并，其他目标照常发送
+     */
+    private void dispatchLoop() {
+        NotificationQueue queue;
+        synchronized (this) {
+            queue = this.queue;
+        }
+        
+        long waitMillis = 1000L;
+        while (true) {
+            boolean stopping = !running;
+            String message;
             try {
-                List<Long> groupIds = plugin.getConfigManager().getOneBotGroupIds();
-                List<Long> privateIds = plugin.getConfigManager().getOneBotPrivateIds();
-                
-                boolean hasTarget = false;
-                
-                // 向所有配置的群聊发送消息
-                for (Long groupId : groupIds) {
-                    if (groupId > 0) {
-                        hasTarget = true;
-                        sendGroupMessage(groupId, message);
-                    }
-                }
-                
-                // 向所有配置的私聊发送消息
-                for (Long privateId : privateIds) {
-                    if (privateId > 0) {
-                        hasTarget = true;
-                        sendPrivateMessage(privateId, message);
-                    }
-                }
-                
-                // 如果没有配置任何目标且启用了调试模式，则记录日志
-                if (!hasTarget && plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("OneBot: 未配置群聊或私聊目标，跳过消息发送");
-                }
-                
-            } catch (Exception e) {
-                handleSendError("发送消息时发生异常", e);
+                message = queue.poll(Math.min(waitMillis, 1000L), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
             }
-        });
+            
+            if (message != null) {
+                deliver(message);
+            }
+            // 关闭时不再等待令牌，暂缓的消息在请求名额空出后立即合并发送，并等待进行中的请求完成
+            waitMillis = releaseDeferred(stopping);
+            if (stopping && queue.size() == 0 && waitMillis == Long.MAX_VALUE) {
+                return;
+            }
+        }
     }
     
     /**
-     * 发送群消息
+     * 发送消息到配置的QQ群和私聊
+     * 各目标异步发送，不等待完成；超过目标限速或目标仍有请求未完成的消息暂缓到下一次发送
      * 
-     * @param groupId 群号
      * @param message 消息内容
      */
-    private void sendGroupMessage(long groupId, String message) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        
+    private void deliver(String message) {
         try {
-            String wsUrl = plugin.getConfigManager().getOneBotWebSocketUrl();
-            String accessToken = plugin.getConfigManager().getOneBotAccessToken();
+            List<OneBotTarget> targets = resolveTargets();
             
-            URI uri = new URI(wsUrl);
+            // 如果没有配置任何目标且启用了调试模式，则记录日志
+            if (targets.isEmpty() && plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("OneBot: 未配置群聊或私聊目标，跳过消息发送");
+            }
             
-            WebSocketClient client = new WebSocketClient(uri) {
-                @Override
-                public void onOpen(ServerHandshake handshake) {
-                    try {
-
-                        JsonObject request = new JsonObject();
-                        request.addProperty("action", "send_group_msg");
-                        
-                        JsonObject params = new JsonObject();
-                        params.addProperty("group_id", groupId);
-                        params.addProperty("message", message);
-                        request.add("params", params);
-                        
-
-                        request.addProperty("echo", "group_" + System.currentTimeMillis());
-                        
-                        send(gson.toJson(request));
-                    } catch (Exception e) {
-                        future.completeExceptionally(e);
-                    }
+            long now = MonotonicClock.nowMillis();
+            for (OneBotTarget target : targets) {
+                String content = target.admit(message, now);
+                if (content != null) {
+                    sendToTarget(target, content);
+                } else if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("OneBot: 目标" + OneBotTarget.key(target.isGroup(), target.getId()) + 
+                                          "超过发送频率限制或上一条消息尚未发送完成，消息将合并到下一次发送");
                 }
-                
-                                 @Override
-                 public void onMessage(String message) {
-                     try {
-                         if (plugin.getConfigManager().isDebugEnabled()) {
-                             plugin.getLogger().info("OneBot群消息响应: " + message);
-                         }
-                         
-                         JsonObject response = gson.fromJson(message, JsonObject.class);
-                         
-
-                         if (response.has("status")) {
-                             String status = response.get("status").getAsString();
-                             if ("ok".equals(status)) {
-                                 future.complete(null);
-                             } else {
-                                 String reason = response.has("msg") ? response.get("msg").getAsString() : "未知错误";
-                                 future.completeExceptionally(new RuntimeException("群消息发送失败: " + reason));
-                             }
-                         } else if (response.has("retcode")) {
-
-                             int retcode = response.get("retcode").getAsInt();
-                             if (retcode == 0) {
-                                 future.complete(null);
-                             } else {
-                                 String reason = response.has("message") ? response.get("message").getAsString() : "未知错误";
-                                 future.completeExceptionally(new RuntimeException("群消息发送失败: " + reason));
-                             }
-                         } else {
-
-                             future.complete(null);
-                         }
-                     } catch (Exception e) {
-                         future.completeExceptionally(e);
-                     }
-                     close();
-                 }
-                
-                @Override
-                public void onClose(int code, String reason, boolean remote) {
-                    if (!future.isDone()) {
-                        future.completeExceptionally(new RuntimeException("连接关闭: " + reason));
-                    }
+            }
+            
+        } catch (Exception e) {
+            handleSendError("发送消息时发生异常", e);
+        }
+    }
+    
+    /**
+     * 发送令牌已恢复的目标上暂缓的消息
+     * 
+     * @param force 是否忽略限速（关闭时），同时等待进行中的请求完成
+     * @return 距离下一次需要检查的毫秒数，没有暂缓消息（关闭时也没有进行中的请求）时返回 Long.MAX_VALUE
+     */
+    private long releaseDeferred(boolean force) {
+        long now = MonotonicClock.nowMillis();
+        long waitMillis = Long.MAX_VALUE;
+        
+        try {
+            for (OneBotTarget target : resolveTargets()) {
+                String content = target.releaseDeferred(now, force);
+                if (content != null) {
+                    sendToTarget(target, content);
                 }
-                
-                @Override
-                public void onError(Exception ex) {
-                    future.completeExceptionally(ex);
+                waitMillis = Math.min(waitMillis, target.millisUntilRelease(now));
+                if (force && target.getInFlightCount() > 0) {
+                    waitMillis = Math.min(waitMillis, SHUTDOWN_RECHECK_MILLIS);
                 }
-            };
-            
-
-            if (accessToken != null && !accessToken.isEmpty()) {
-                client.addHeader("Authorization", "Bearer " + accessToken);
             }
             
-            client.connect();
-            
-
-            future.get(plugin.getConfigManager().getOneBotConnectTimeout(), TimeUnit.SECONDS);
-            
         } catch (Exception e) {
-            handleSendError("发送群消息失败", e);
+            handleSendError("发送消息时发生异常", e);
+        }
+        return waitMillis;
+    }
+    
+    /**
+     * 获取当前配置的发送目标，同一目标在重载前后共用限速状态和统计数据
+     * 
+     * @return 发送目标列表
+     */
+    private List<OneBotTarget> resolveTargets() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        long intervalMillis = getRateLimitIntervalMillis(config);
+        int burst = config.getOneBotRateLimitBurst();
+        
+        List<OneBotTarget> result = new ArrayList<>();
+        for (Long groupId : config.getOneBotGroupIds()) {
+            if (groupId > 0) {
+                result.add(targets.computeIfAbsent(OneBotTarget.key(true, groupId), 
+                           key -> new OneBotTarget(true, groupId, intervalMillis, burst)));
+            }
+        }
+        for (Long privateId : config.getOneBotPrivateIds()) {
+            if (privateId > 0) {
+                result.add(targets.computeIfAbsent(OneBotTarget.key(false, privateId), 
+                           key -> new OneBotTarget(false, privateId, intervalMillis, burst)));
+            }
         }
+        return result;
+    }
+    
+    private static long getRateLimitIntervalMillis(ConfigSnapshot config) {
+        int perMinute = config.getOneBotRateLimitPerMinute();
+        return perMinute > 0 ? 60000L / perMinute : 0L;
+    }
+    
+    /**
+     * 异步发送到一个目标，请求结束时释放目标的请求名额
+     */
+    private void sendToTarget(OneBotTarget target, String message) {
+        CompletableFuture<Boolean> result = target.isGroup() 
+                                            ? sendGroupMessage(target.getId(), message)
+                                            : sendPrivateMessage(target.getId(), message);
+        result.whenComplete((success, e) -> target.complete(Boolean.TRUE.equals(success)));
+    }
+    
+    /**
+     * 有消息被丢弃时输出警告，每分钟最多一次
+     */
+    private synchronized void reportDrops(NotificationQueue queue) {
+        long dropped = queue.getDroppedCount();
+        if (dropped == reportedDropCount) {
+            return;
+        }
+        
+        long now = MonotonicClock.nowMillis();
+        if (lastDropWarning != MonotonicClock.NEVER && now - lastDropWarning < 60000L) {
+            return;
+        }
+        
+        plugin.getLogger().warning("OneBot发送队列已满（" + queue.size() + "/" + queue.getCapacity() + 
+                                   "），累计丢弃" + dropped + "条消息，请检查onebot接口是否可用");
+        reportedDropCount = dropped;
+        lastDropWarning = now;
+    }
+    
+    /**
+     * 发送群消息
+     * 
+     * @param groupId 群号
+     * @param message 消息内容
+     */
+    private CompletableFuture<Boolean> sendGroupMessage(long groupId, String message) {
+        JsonObject params = new JsonObject();
+        params.addProperty("group_id", groupId);
+        params.addProperty("message", message);
+        
+        return sendAction("send_group_msg", params, "群消息", "发送群消息失败");
     }
     
     /**
@@ -227,99 +396,148 @@ public class OneBotManager {
      * @param userId 用户QQ号
      * @param message 消息内容
      */
-    private void sendPrivateMessage(long userId, String message) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+    private CompletableFuture<Boolean> sendPrivateMessage(long userId, String message) {
+        JsonObject params = new JsonObject();
+        params.addProperty("user_id", userId);
+        params.addProperty("message", message);
         
+        return sendAction("send_private_msg", params, "私聊消息", "发送私聊消息失败");
+    }
+    
+    /**
+     * 通过请求通道发送动作请求并异步检查响应
+     * 
+     * @param action 动作名称
+     * @param params 参数
+     * @param messageType 消息类型描述
+     * @param errorType 错误类型描述
+     * @return 请求完成时以是否发送成功完成的 future，不会异常结束
+     */
+    private CompletableFuture<Boolean> sendAction(String action, JsonObject params, String messageType, String errorType) {
+        OneBotTransport transport;
         try {
-            String wsUrl = plugin.getConfigManager().getOneBotWebSocketUrl();
-            String accessToken = plugin.getConfigManager().getOneBotAccessToken();
-            
-            URI uri = new URI(wsUrl);
-            
-            WebSocketClient client = new WebSocketClient(uri) {
-                @Override
-                public void onOpen(ServerHandshake handshake) {
-                    try {
-
-                        JsonObject request = new JsonObject();
-                        request.addProperty("action", "send_private_msg");
-                        
-                        JsonObject params = new JsonObject();
-                        params.addProperty("user_id", userId);
-                        params.addProperty("message", message);
-                        request.add("params", params);
-                        
-
-                        request.addProperty("echo", "private_" + System.currentTimeMillis());
-                        
-                        send(gson.toJson(request));
-                    } catch (Exception e) {
-                        future.completeExceptionally(e);
-                    }
-                }
-                
-                                 @Override
-                 public void onMessage(String message) {
-                     try {
-                         if (plugin.getConfigManager().isDebugEnabled()) {
-                             plugin.getLogger().info("OneBot私聊响应: " + message);
-                         }
-                         
-                         JsonObject response = gson.fromJson(message, JsonObject.class);
-                         
-
-                         if (response.has("status")) {
-                             String status = response.get("status").getAsString();
-                             if ("ok".equals(status)) {
-                                 future.complete(null);
-                             } else {
-                                 String reason = response.has("msg") ? response.get("msg").getAsString() : "未知错误";
-                                 future.completeExceptionally(new RuntimeException("私聊消息发送失败: " + reason));
-                             }
-                         } else if (response.has("retcode")) {
-
-                             int retcode = response.get("retcode").getAsInt();
-                             if (retcode == 0) {
-                                 future.complete(null);
-                             } else {
-                                 String reason = response.has("message") ? response.get("message").getAsString() : "未知错误";
-                                 future.completeExceptionally(new RuntimeException("私聊消息发送失败: " + reason));
-                             }
-                         } else {
-
-                             future.complete(null);
-                         }
-                     } catch (Exception e) {
-                         future.completeExceptionally(e);
-                     }
-                     close();
-                 }
-                
-                @Override
-                public void onClose(int code, String reason, boolean remote) {
-                    if (!future.isDone()) {
-                        future.completeExceptionally(new RuntimeException("连接关闭: " + reason));
-                    }
-                }
-                
-                @Override
-                public void onError(Exception ex) {
-                    future.completeExceptionally(ex);
+            transport = getTransport();
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            handleSendError(errorType, e);
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        long timeoutMillis = plugin.getConfigManager().getOneBotRequestTimeout() * 1000L;
+        long startNanos = System.nanoTime();
+        return transport.request(action, params, timeoutMillis).handle((response, throwable) -> {
+            try {
+                if (throwable != null) {
+                    throw throwable;
                 }
-            };
-            
-
-            if (accessToken != null && !accessToken.isEmpty()) {
-                client.addHeader("Authorization", "Bearer " + accessToken);
+                // 只统计收到响应的请求，超时和连接失败不计入往返耗时
+                plugin.getMetricsRegistry().getOneBotRoundTrip().recordSince(startNanos);
+                checkResponse(response, messageType);
+                sentCount.incrementAndGet();
+                return true;
+            } catch (Throwable t) {
+                failedCount.incrementAndGet();
+                handleSendError(errorType, unwrap(t));
+                return false;
             }
-            
-            client.connect();
-            
+        });
+    }
+    
+    /**
+     * 检查OneBot响应状态
+     * 
+     * @param response 响应
+     * @param messageType 消息类型描述
+     */
+    private void checkResponse(JsonObject response, String messageType) {
+        if (response.has("status")) {
+            String status = response.get("status").getAsString();
+            if (!"ok".equals(status)) {
+                String reason = response.has("msg") ? response.get("msg").getAsString() : "未知错误";
+                throw new RuntimeException(messageType + "发送失败: " + reason);
+            }
+        } else if (response.has("retcode")) {
 
-            future.get(plugin.getConfigManager().getOneBotConnectTimeout(), TimeUnit.SECONDS);
-            
-        } catch (Exception e) {
-            handleSendError("发送私聊消息失败", e);
+            int retcode = response.get("retcode").getAsInt();
+            if (retcode != 0) {
+                String reason = response.has("message") ? response.get("message").getAsString() : "未知错误";
+                throw new RuntimeException(messageType + "发送失败: " + reason);
+            }
+        }
+    }
+    
+    private static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+            return new RuntimeException("请求超时", cause);
+        }
+        return cause;
+    }
+    
+    /**
+     * 获取当前的请求通道，通道类型、地址或令牌变化时重新建立
+     * 
+     * @return 请求通道
+     */
+    private synchronized OneBotTransport getTransport() throws URISyntaxException {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        boolean http = "http".equals(config.getOneBotTransport());
+        URI uri = new URI(http ? config.getOneBotHttpUrl() : config.getOneBotWebSocketUrl());
+        String accessToken = config.getOneBotAccessToken();
+        String key = (http ? "http|" : "websocket|") + uri + "|" + accessToken;
+        
+        if (transport != null && Objects.equals(transportKey, key)) {
+            return transport;
+        }
+        
+        if (transport != null) {
+            transport.close();
+        }
+        int connectTimeout = config.getOneBotConnectTimeout();
+        if (http) {
+            transport = new OneBotHttpTransport(plugin.getLogger(), () -> plugin.getConfigManager().isDebugVerbose(),
+                                                uri, accessToken, connectTimeout);
+        } else {
+            transport = new OneBotConnection(plugin, uri, accessToken, connectTimeout,
+                                             config.getOneBotHeartbeatInterval());
+        }
+        transportKey = key;
+        return transport;
+    }
+    
+    /**
+     * OneBot配置变化后调用，更新发送队列和限速设置
+     * 不再配置的目标连同其暂缓的消息和统计数据一起移除；
+     * 连接配置变化或关闭OneBot时断开连接，下次发送时按新配置重新建立
+     * 
+     * @param connectionChanged 连接相关的配置是否变化
+     */
+    public synchronized void reload(boolean connectionChanged) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        Set<String> configured = new HashSet<>();
+        for (Long groupId : config.getOneBotGroupIds()) {
+            configured.add(OneBotTarget.key(true, groupId));
+        }
+        for (Long privateId : config.getOneBotPrivateIds()) {
+            configured.add(OneBotTarget.key(false, privateId));
+        }
+        targets.keySet().retainAll(configured);
+        
+        long intervalMillis = getRateLimitIntervalMillis(config);
+        int burst = config.getOneBotRateLimitBurst();
+        for (OneBotTarget target : targets.values()) {
+            target.configure(intervalMillis, burst);
+        }
+        if (queue != null) {
+            queue.configure(plugin.getConfigManager().getOneBotQueueCapacity(),
+                            plugin.getConfigManager().getOneBotQueueOverflowPolicy(),
+                            plugin.getConfigManager().getOneBotQueueBlockTimeout());
+        }
+        if (connectionChanged || !plugin.getConfigManager().isOneBotEnabled()) {
+            closeTransport();
         }
     }
     
@@ -350,13 +568,7 @@ public class OneBotManager {
          String errorMessage = "§cQQBot消息发送失败，请检查onebot接口是否可用！报错信息：" + throwable.getMessage();
          
 
-         Bukkit.getScheduler().runTask(plugin, () -> {
-             for (Player player : Bukkit.getOnlinePlayers()) {
-                 if (player.hasPermission("antipaotu.notice")) {
-                     player.sendMessage(errorMessage);
-                 }
-             }
-         });
+         plugin.getMessageUtil().broadcastNotice(errorMessage);
          
 
          plugin.getLogger().warning("OneBot " + errorType + ": " + throwable.getMessage());
@@ -365,18 +577,72 @@ public class OneBotManager {
          }
      }
     
+    /**
+     * 获取发送队列中等待的消息数量
+     */
+    public synchronized int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+    
+    /**
+     * 获取因队列满或重复而丢弃的消息数量
+     */
+    public synchronized long getDroppedCount() {
+        return queue != null ? queue.getDroppedCount() : 0L;
+    }
+    
+    /**
+     * 获取各发送目标的限速和发送统计
+     */
+    public Collection<OneBotTarget> getTargets() {
+        return Collections.unmodifiableCollection(targets.values());
+    }
+    
+    /**
+     * 获取发送成功的请求数量（每个目标计一次）
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+    
+    /**
+     * 获取发送失败的请求数量（每个目标计一次）
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+    
     /**
      * 关闭管理器
      */
     public void shutdown() {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+        flushDigest();
+        
+        Thread dispatcher;
+        synchronized (this) {
+            running = false;
+            dispatcher = this.dispatcher;
+            this.dispatcher = null;
+        }
+        
+        // 等待队列中剩余的消息和进行中的请求完成
+        if (dispatcher != null) {
+            try {
+                dispatcher.join(3000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+            dispatcher.interrupt();
+        }
+        
+        closeTransport();
+    }
+    
+    private synchronized void closeTransport() {
+        if (transport != null) {
+            transport.close();
+            transport = null;
+            transportKey = null;
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.whitelu.antipaotu.manager;
+
+import com.whitelu.antipaotu.data.SlidingWindowCounter;
+import com.whitelu.antipaotu.util.MonotonicClock;
+import com.whitelu.antipaotu.util.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OneBot消息目标（一个群或一个私聊）
+ * 每个目标有独立的令牌桶，超过限速的消息暂缓发送，在下一次允许发送时合并为一条消息。
+ * 每个目标同时只有有限个请求在进行，接口无响应时新消息同样暂缓合并，不影响其他目标。
+ * 暂缓的消息只在发送线程上访问，进行中的请求数和统计数据可从任意线程读取
+ */
+public class OneBotTarget {
+
+    /**
+     * 每个目标最多暂缓的消息条数，超过后丢弃最早的消息
+     */
+    private static final int MAX_DEFERRED = 20;
+
+    /**
+     * 每个目标同时进行的请求数上限，为 1 时同一目标的消息按顺序送达
+     */
+    private static final int MAX_IN_FLIGHT = 1;
+
+    /**
+     * 请求未完成时重新检查暂缓消息的间隔（毫秒）
+     */
+    private static final long IN_FLIGHT_RECHECK_MILLIS = 100L;
+
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private final boolean group;
+    private final long id;
+    private final TokenBucket bucket;
+    private final ArrayDeque<String> deferred;
+    private final AtomicInteger inFlight;
+
+    private final SlidingWindowCounter recentSends;
+    private final AtomicLong sentCount;
+    private final AtomicLong deferredCount;
+    private final AtomicLong droppedCount;
+    private volatile int pendingCount;
+
+    OneBotTarget(boolean group, long id, long intervalMillis, int burst) {
+        this.group = group;
+        this.id = id;
+        this.bucket = new TokenBucket(intervalMillis, burst);
+        this.deferred = new ArrayDeque<>();
+        this.inFlight = new AtomicInteger();
+        this.recentSends = new SlidingWindowCounter(RATE_WINDOW_SECONDS);
+        this.sentCount = new AtomicLong();
+        this.deferredCount = new AtomicLong();
+        this.droppedCount = new AtomicLong();
+    }
+
+    /**
+     * 获取目标的唯一键
+     *
+     * @param group 是否为群聊
+     * @param id 群号或QQ号
+     * @return 键
+     */
+    static String key(boolean group, long id) {
+        return (group ? "group:" : "private:") + id;
+    }
+
+    void configure(long intervalMillis, int burst) {
+        bucket.configure(intervalMillis, burst);
+    }
+
+    /**
+     * 尝试发送一条消息
+     * 请求数未达上限且获取到令牌时返回与暂缓消息合并后的内容，否则暂缓该消息。
+     * 返回内容时占用一个请求名额，调用方必须在请求结束后调用 complete
+     *
+     * @param message 消息内容
+     * @param now 当前时钟值
+     * @return 需要发送的内容，被暂缓时返回 null
+     */
+    String admit(String message, long now) {
+        if (isBusy() || !bucket.tryAcquire(now)) {
+            defer(message);
+            return null;
+        }
+        inFlight.incrementAndGet();
+        return fold(message);
+    }
+
+    /**
+     * 请求数未达上限且令牌可用时取出合并后的暂缓消息，返回内容时与 admit 一样占用请求名额
+     *
+     * @param now 当前时钟值
+     * @param force 是否忽略限速（插件关闭时），请求数上限仍然有效
+     * @return 需要发送的内容，没有暂缓消息或仍需等待时返回 null
+     */
+    String releaseDeferred(long now, boolean force) {
+        if (deferred.isEmpty() || isBusy() || (!force && !bucket.tryAcquire(now))) {
+            return null;
+        }
+        inFlight.incrementAndGet();
+        return fold(null);
+    }
+
+    /**
+     * 获取距离暂缓消息可以发送的时间
+     *
+     * @param now 当前时钟值
+     * @return 等待毫秒数，没有暂缓消息时返回 Long.MAX_VALUE
+     */
+    long millisUntilRelease(long now) {
+        if (deferred.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        return isBusy() ? IN_FLIGHT_RECHECK_MILLIS : bucket.millisUntilAvailable(now);
+    }
+
+    /**
+     * 请求结束，释放 admit 或 releaseDeferred 占用的请求名额
+     *
+     * @param sent 是否发送成功
+     */
+    void complete(boolean sent) {
+        if (sent) {
+            sentCount.incrementAndGet();
+            recentSends.add(MonotonicClock.nowSeconds());
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private boolean isBusy() {
+        return inFlight.get() >= MAX_IN_FLIGHT;
+    }
+
+    private void defer(String message) {
+        if (deferred.size() >= MAX_DEFERRED) {
+            deferred.pollFirst();
+            droppedCount.incrementAndGet();
+        }
+        deferred.addLast(message);
+        deferredCount.incrementAndGet();
+        pendingCount = deferred.size();
+    }
+
+    private String fold(String message) {
+        if (deferred.isEmpty()) {
+            return message;
+        }
+
+        if (message != null) {
+            deferred.addLast(message);
+        }
+        String folded = String.join("\n", deferred);
+        deferred.clear();
+        pendingCount = 0;
+        return folded;
+    }
+
+    public boolean isGroup() {
+        return group;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 获取最近一分钟的发送次数
+     */
+    public int getSendsLastMinute() {
+        return recentSends.count(MonotonicClock.nowSeconds());
+    }
+
+    /**
+     * 获取累计发送次数（合并发送计一次）
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * 获取累计因限速或请求未完成而暂缓的消息数量
+     */
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    /**
+     * 获取因暂缓过多而丢弃的消息数量
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 获取当前等待发送的暂缓消息数量
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * 获取正在进行的请求数量
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+}
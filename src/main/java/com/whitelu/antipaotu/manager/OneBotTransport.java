@@ -0,0 +1,27 @@
+package com.whitelu.antipaotu.manager;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * OneBot请求通道
+ * 由 onebot.transport 选择 WebSocket 长连接或 HTTP API
+ */
+public interface OneBotTransport {
+
+    /**
+     * 发送一个 OneBot 动作请求
+     *
+     * @param action 动作名称
+     * @param params 参数
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 响应内容
+     */
+    CompletableFuture<JsonObject> request(String action, JsonObject params, long timeoutMillis);
+
+    /**
+     * 关闭通道，未完成的请求全部失败
+     */
+    void close();
+}
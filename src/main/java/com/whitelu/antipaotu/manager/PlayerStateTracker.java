@@ -0,0 +1,318 @@
+package com.whitelu.antipaotu.manager;
+
+import com.whitelu.antipaotu.AntiPaotuPlugin;
+import com.whitelu.antipaotu.data.PlayerGrid;
+import com.whitelu.antipaotu.data.PlayerState;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityToggleGlideEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家状态追踪器
+ * 维护每个在线玩家的状态快照（鞘翅、bypass、水中、位置、视距、世界），
+ * 并维护滑翔玩家的网格索引和管理员通知接收者集合，供区块生成和广播时直接读取。
+ * 每个玩家的快照只由其所在区域的线程刷新（Folia 下即实体调度器）
+ */
+public class PlayerStateTracker implements Listener {
+
+    /**
+     * 权限状态的兜底刷新间隔（tick）
+     * 权限变化时由事件刷新，Paper 没有通用的权限重算事件，
+     * 这里只为没有触发事件的变化（如部分权限插件的限时权限）保留一个很慢的兜底
+     */
+    private static final int PERMISSION_REFRESH_TICKS = 20 * 60;
+
+    private final AntiPaotuPlugin plugin;
+    private final Map<UUID, PlayerState> states;
+
+    // 正在使用鞘翅的玩家网格索引
+    private final PlayerGrid glidingPlayers;
+
+
+    // 每个玩家的刷新任务
+    private final Map<UUID, ScheduledTask> refreshTasks;
+
+    // 拥有 antipaotu.notice 权限的在线玩家，在加入、离开和权限变化时增量维护
+    private final Map<UUID, Player> noticeRecipients;
+
+    public PlayerStateTracker(AntiPaotuPlugin plugin) {
+        this.plugin = plugin;
+        this.states = new ConcurrentHashMap<>();
+        this.glidingPlayers = new PlayerGrid();
+        this.refreshTasks = new ConcurrentHashMap<>();
+        this.noticeRecipients = new ConcurrentHashMap<>();
+
+
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+
+        // 插件重载时为已在线的玩家启动刷新任务
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            startRefreshTask(player);
+        }
+    }
+
+    /**
+     * 监听玩家加入事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer(), true);
+        startRefreshTask(event.getPlayer());
+    }
+
+    /**
+     * 监听玩家离开事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        SchedulerUtil.cancel(refreshTasks.remove(playerId));
+        states.remove(playerId);
+        glidingPlayers.remove(playerId);
+        noticeRecipients.remove(playerId);
+    }
+
+    /**
+     * 服务端向玩家重新发送命令列表时刷新权限
+     * OP 变更和权限插件重算权限后都会更新客户端的命令列表，是可用的权限变化信号
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCommandSend(PlayerCommandSendEvent event) {
+        Player player = event.getPlayer();
+        plugin.getSchedulerUtil().runForEntity(player, () -> refreshPermissions(player));
+    }
+
+    /**
+     * 切换世界时刷新权限（按世界设置的权限）
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        refreshPermissions(event.getPlayer());
+    }
+
+    /**
+     * 监听鞘翅状态切换事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onToggleGlide(EntityToggleGlideEvent event) {
+        if (!(event.getEntity() instanceof Player player)) {
+            return;
+        }
+
+        PlayerState state = getOrCreateState(player);
+        if (event.isGliding()) {
+            state.setGliding(true);
+            refreshGlidingState(player, state);
+        } else {
+            state.setGliding(false);
+            glidingPlayers.remove(player.getUniqueId());
+        }
+    }
+
+    /**
+     * 在玩家所在区域的线程上启动每tick刷新任务
+     *
+     * @param player 玩家
+     */
+    private void startRefreshTask(Player player) {
+        Runnable refreshTask = new Runnable() {
+            private int ticks;
+
+            @Override
+            public void run() {
+                refresh(player, ++ticks % PERMISSION_REFRESH_TICKS == 0);
+            }
+        };
+
+        ScheduledTask task = plugin.getSchedulerUtil().runEntityTimer(player, refreshTask, 1L, 1L);
+        if (task != null) {
+            SchedulerUtil.cancel(refreshTasks.put(player.getUniqueId(), task));
+        }
+    }
+
+    /**
+     * 刷新单个玩家的状态
+     *
+     * @param player 玩家
+     * @param refreshPermissions 是否刷新权限状态
+     */
+    private void refresh(Player player, boolean refreshPermissions) {
+        PlayerState state = states.get(player.getUniqueId());
+        if (state == null) {
+            state = getOrCreateState(player);
+            refreshPermissions = true;
+        }
+
+        if (refreshPermissions) {
+            refreshPermissions(player, state);
+        }
+
+        boolean gliding = player.isGliding();
+        state.setGliding(gliding);
+        if (gliding) {
+            refreshGlidingState(player, state);
+        } else {
+            glidingPlayers.remove(player.getUniqueId());
+        }
+    }
+
+    /**
+     * 刷新滑翔玩家的位置、视距和水中状态，并更新网格索引
+     */
+    private void refreshGlidingState(Player player, PlayerState state) {
+        Location location = player.getLocation();
+        if (location.getWorld() == null) {
+            return;
+        }
+
+        state.setPosition(location.getWorld().getUID(), location.getX(), location.getY(), location.getZ());
+        state.setViewDistance(getPlayerViewDistance(player));
+        state.setInWater(plugin.getConfigManager().isDisableDetectionInWater() && isPlayerInWater(player, location));
+        glidingPlayers.update(state);
+    }
+
+    /**
+     * 刷新单个玩家的权限状态，在玩家所在区域的线程上调用
+     *
+     * @param player 玩家
+     */
+    private void refreshPermissions(Player player) {
+        PlayerState state = states.get(player.getUniqueId());
+        if (state != null && player.isOnline()) {
+            refreshPermissions(player, state);
+        }
+    }
+
+    private void refreshPermissions(Player player, PlayerState state) {
+        state.setBypass(player.hasPermission("antipaotu.bypass"));
+        refreshNotice(player, state);
+    }
+
+    /**
+     * 刷新通知权限，只在权限变化时更新接收者集合
+     */
+    private void refreshNotice(Player player, PlayerState state) {
+        boolean notice = player.hasPermission("antipaotu.notice");
+        if (notice == state.isNotice() && notice == noticeRecipients.containsKey(player.getUniqueId())) {
+            return;
+        }
+
+        state.setNotice(notice);
+        if (notice) {
+            noticeRecipients.put(player.getUniqueId(), player);
+        } else {
+            noticeRecipients.remove(player.getUniqueId());
+        }
+    }
+
+    private PlayerState getOrCreateState(Player player) {
+        return states.computeIfAbsent(player.getUniqueId(),
+            id -> new PlayerState(id, player.getName()));
+    }
+
+    /**
+     * 查找距离区块最近的正在使用鞘翅的玩家
+     * 只查找网格索引中位于最大视距范围内的单元
+     *
+     * @param worldId 世界ID
+     * @param chunkX 区块X坐标
+     * @param chunkZ 区块Z坐标
+     * @return 最近玩家的状态，如果没有则返回null
+     */
+    public PlayerState findNearestGlidingPlayer(UUID worldId, int chunkX, int chunkZ) {
+        return glidingPlayers.findNearest(worldId, chunkX, chunkZ);
+    }
+
+    /**
+     * 获取玩家状态快照
+     *
+     * @param playerId 玩家ID
+     * @return 玩家状态，如果不在线则返回null
+     */
+    public PlayerState getState(UUID playerId) {
+        return states.get(playerId);
+    }
+
+    /**
+     * 获取接收管理员通知的在线玩家
+     *
+     * @return 接收者（只读视图）
+     */
+    public Collection<Player> getNoticeRecipients() {
+        return Collections.unmodifiableCollection(noticeRecipients.values());
+    }
+
+    /**
+     * 获取当前正在使用鞘翅的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int getGlidingPlayerCount() {
+        return glidingPlayers.size();
+    }
+
+    /**
+     * 获取玩家的视距
+     *
+     * @param player 玩家
+     * @return 视距
+     */
+    private int getPlayerViewDistance(Player player) {
+        try {
+
+            return player.getClientViewDistance();
+        } catch (Exception e) {
+
+            return Bukkit.getViewDistance();
+        }
+    }
+
+    /**
+     * 检查玩家是否在水中
+     * 使用多种方法检测水中状态，提高准确性
+     *
+     * @param player 玩家
+     * @param location 玩家当前位置
+     * @return 是否在水中
+     */
+    private boolean isPlayerInWater(Player player, Location location) {
+        if (player.isSwimming() || player.isInWater()) {
+            return true;
+        }
+        Material footBlock = location.getBlock().getType();
+        Material eyeBlock = player.getEyeLocation().getBlock().getType();
+        return footBlock == Material.WATER || eyeBlock == Material.WATER;
+    }
+
+    /**
+     * 清理资源
+     */
+    public void cleanup() {
+        for (ScheduledTask task : refreshTasks.values()) {
+            SchedulerUtil.cancel(task);
+        }
+        refreshTasks.clear();
+
+        states.clear();
+        glidingPlayers.clear();
+        noticeRecipients.clear();
+    }
+}
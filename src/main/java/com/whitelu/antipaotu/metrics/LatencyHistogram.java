@@ -0,0 +1,186 @@
+package com.whitelu.antipaotu.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图
+ * 按 HDR Histogram 的对数-线性方式分桶：每个2的幂区间再等分为16个子桶，
+ * 任意取值的相对误差不超过1/16。记录只做一次数组自增，不加锁、不分配对象，
+ * 可在区块加载等热点路径上从任意线程调用
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // 超过 2^40 纳秒（约18分钟）的记录计入最后一个桶
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0L);
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 记录从指定起点到现在的耗时
+     *
+     * @param startNanos System.nanoTime() 起点
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 清空所有记录
+     * 与并发的记录之间不保证原子性，只用于手动重置统计
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * 复制当前的分桶计数
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, sum.sum(), max.get());
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 获取分桶能表示的最大值（桶内所有取值都不超过它）
+     */
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKET_COUNT + subBucket) * width + width - 1;
+    }
+
+    /**
+     * 直方图快照，计算分位数时不再读取共享数据
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * 获取分位数
+         *
+         * @param percentile 百分位（0~100）
+         * @return 不小于该分位上实际取值的桶上界（纳秒），没有记录时返回0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0L) {
+                return 0L;
+            }
+
+            long target = Math.max(1L, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * 获取不超过指定值的记录数量，用于导出累积分桶
+         * 只统计上界不超过该值的整个分桶，跨越该值的分桶计入更大的边界
+         *
+         * @param nanos 上界（纳秒）
+         * @return 记录数量
+         */
+        public long getCountAtOrBelow(long nanos) {
+            long total = 0L;
+            for (int i = 0; i < counts.length && bucketUpperBound(i) <= nanos; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 获取耗时总和（纳秒）
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * 获取最大耗时（纳秒）
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 获取平均耗时（纳秒）
+         */
+        public double getMean() {
+            return count == 0L ? 0.0 : (double) sum / count;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.whitelu.antipaotu.metrics;
+
+import com.whitelu.antipaotu.util.MonotonicClock;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 插件自身的性能统计
+ * 计数器使用 LongAdder，耗时使用 LatencyHistogram，记录时都不加锁；
+ * 读取方（命令、导出）自行复制快照，不影响记录线程
+ */
+public class MetricsRegistry {
+
+    // ChunkLoadEvent 处理耗时（只统计新区块）
+    private final LatencyHistogram chunkLoadTime;
+    // 区块归属耗时（含检测管理器记录区块）
+    private final LatencyHistogram attributionTime;
+    // OneBot 请求往返耗时
+    private final LatencyHistogram oneBotRoundTrip;
+
+    private final LongAdder detectionEvaluations;
+    private final LongAdder detections;
+    private final LongAdder bans;
+
+    // 按世界名称统计的新区块
+    private final Map<String, WorldMetrics> worlds;
+
+    private volatile long resetTime;
+
+    public MetricsRegistry() {
+        this.chunkLoadTime = new LatencyHistogram();
+        this.attributionTime = new LatencyHistogram();
+        this.oneBotRoundTrip = new LatencyHistogram();
+        this.detectionEvaluations = new LongAdder();
+        this.detections = new LongAdder();
+        this.bans = new LongAdder();
+        this.worlds = new ConcurrentHashMap<>();
+        this.resetTime = MonotonicClock.nowMillis();
+    }
+
+    /**
+     * 获取世界的区块统计，不存在时创建
+     *
+     * @param worldName 世界名称
+     * @return 区块统计
+     */
+    public WorldMetrics getWorld(String worldName) {
+        WorldMetrics metrics = worlds.get(worldName);
+        if (metrics != null) {
+            return metrics;
+        }
+        return worlds.computeIfAbsent(worldName, name -> new WorldMetrics());
+    }
+
+    /**
+     * 获取所有世界的区块统计
+     */
+    public Map<String, WorldMetrics> getWorlds() {
+        return Collections.unmodifiableMap(worlds);
+    }
+
+    public LatencyHistogram getChunkLoadTime() {
+        return chunkLoadTime;
+    }
+
+    public LatencyHistogram getAttributionTime() {
+        return attributionTime;
+    }
+
+    public LatencyHistogram getOneBotRoundTrip() {
+        return oneBotRoundTrip;
+    }
+
+    /**
+     * 记录一次阈值检测
+     */
+    public void recordEvaluation() {
+        detectionEvaluations.increment();
+    }
+
+    /**
+     * 记录一次触发的跑图检测
+     */
+    public void recordDetection() {
+        detections.increment();
+    }
+
+    /**
+     * 记录一次封禁
+     */
+    public void recordBan() {
+        bans.increment();
+    }
+
+    public long getDetectionEvaluations() {
+        return detectionEvaluations.sum();
+    }
+
+    public long getDetections() {
+        return detections.sum();
+    }
+
+    public long getBans() {
+        return bans.sum();
+    }
+
+    /**
+     * 获取上次重置以来的秒数
+     */
+    public long getSecondsSinceReset() {
+        return (MonotonicClock.nowMillis() - resetTime) / 1000L;
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        chunkLoadTime.reset();
+        attributionTime.reset();
+        oneBotRoundTrip.reset();
+        detectionEvaluations.reset();
+        detections.reset();
+        bans.reset();
+        for (WorldMetrics metrics : worlds.values()) {
+            metrics.reset();
+        }
+        resetTime = MonotonicClock.nowMillis();
+    }
+
+    /**
+     * 将纳秒耗时格式化为便于阅读的文本
+     *
+     * @param nanos 纳秒
+     * @return 如 "850ns"、"12.3µs"、"4.56ms"
+     */
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000L) {
+            return String.format("%.1fµs", nanos / 1_000.0);
+        }
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * 单个世界的区块统计
+     */
+    public static final class WorldMetrics {
+
+        private final RateMeter generated;
+        private final RateMeter attributed;
+
+        private WorldMetrics() {
+            this.generated = new RateMeter();
+            this.attributed = new RateMeter();
+        }
+
+        /**
+         * 新生成的区块
+         */
+        public RateMeter getGenerated() {
+            return generated;
+        }
+
+        /**
+         * 归属给滑翔玩家并计入检测的新区块
+         */
+        public RateMeter getAttributed() {
+            return attributed;
+        }
+
+        private void reset() {
+            generated.reset();
+            attributed.reset();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.whitelu.antipaotu.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.whitelu.antipaotu.AntiPaotuPlugin;
+import com.whitelu.antipaotu.config.ConfigSnapshot;
+import com.whitelu.antipaotu.data.PlayerData;
+import com.whitelu.antipaotu.manager.OneBotTarget;
+import com.whitelu.antipaotu.util.SchedulerUtil;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prometheus 指标导出
+ * 使用 JDK 自带的 HttpServer 在本地端口以 Prometheus 文本格式提供 /metrics。
+ * 响应内容由异步定时任务预先汇总生成，抓取请求只返回最近一次的结果，
+ * 不会访问主线程，也不会在抓取时遍历玩家数据
+ */
+public class PrometheusExporter {
+
+    private static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * 汇总间隔（tick），抓取到的数据最多落后这么久
+     */
+    private static final long REFRESH_INTERVAL_TICKS = 20L * 5;
+
+    // 直方图导出的分桶上界（纳秒）
+    private static final long[] BUCKET_BOUNDS_NANOS = {
+        1_000L, 5_000L, 10_000L, 50_000L, 100_000L, 500_000L,
+        1_000_000L, 5_000_000L, 10_000_000L, 50_000_000L, 100_000_000L, 500_000_000L,
+        1_000_000_000L, 5_000_000_000L
+    };
+    private static final String[] BUCKET_LABELS = new String[BUCKET_BOUNDS_NANOS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_NANOS.length; i++) {
+            BUCKET_LABELS[i] = BigDecimal.valueOf(BUCKET_BOUNDS_NANOS[i], 9).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private final AntiPaotuPlugin plugin;
+
+    // 最近一次汇总生成的响应内容
+    private volatile byte[] body;
+
+    // 以下字段由 this 保护
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledTask refreshTask;
+
+    public PrometheusExporter(AntiPaotuPlugin plugin) {
+        this.plugin = plugin;
+        this.body = new byte[0];
+    }
+
+    /**
+     * 按配置启动、重启或停止导出端点
+     *
+     * @param config 当前配置
+     */
+    public synchronized void update(ConfigSnapshot config) {
+        stop();
+        if (config.isPrometheusEnabled()) {
+            start(config.getPrometheusBindAddress(), config.getPrometheusPort());
+        }
+    }
+
+    private void start(String bindAddress, int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        } catch (IOException e) {
+            plugin.getLogger().warning("无法启动Prometheus导出端点 " + bindAddress + ":" + port + ": " + e.getMessage());
+            server = null;
+            return;
+        }
+
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("AntiPaotu-Metrics-", 0).factory());
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+
+        refreshTask = plugin.getSchedulerUtil().runAsyncTimer(this::refresh, 0L, REFRESH_INTERVAL_TICKS);
+
+        plugin.getLogger().info("Prometheus导出端点已启动: http://" + bindAddress + ":" + port + PATH);
+    }
+
+    /**
+     * 停止导出端点
+     */
+    public synchronized void stop() {
+        SchedulerUtil.cancel(refreshTask);
+        refreshTask = null;
+
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] response = body;
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (head) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(response);
+            }
+        }
+    }
+
+    /**
+     * 汇总当前统计并生成响应内容，在异步线程上运行
+     */
+    private void refresh() {
+        try {
+            body = render().getBytes(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            plugin.getLogger().warning("生成Prometheus指标失败: " + e.getMessage());
+        }
+    }
+
+    private String render() {
+        MetricsRegistry metrics = plugin.getMetricsRegistry();
+        StringBuilder out = new StringBuilder(8192);
+
+        header(out, "antipaotu_chunks_generated_total", "counter", "新生成的区块数量");
+        for (Map.Entry<String, MetricsRegistry.WorldMetrics> entry : metrics.getWorlds().entrySet()) {
+            sample(out, "antipaotu_chunks_generated_total", label("world", entry.getKey()),
+                   entry.getValue().getGenerated().getTotal());
+        }
+        header(out, "antipaotu_chunks_attributed_total", "counter", "归属给滑翔玩家并计入检测的新区块数量");
+        for (Map.Entry<String, MetricsRegistry.WorldMetrics> entry : metrics.getWorlds().entrySet()) {
+            sample(out, "antipaotu_chunks_attributed_total", label("world", entry.getKey()),
+                   entry.getValue().getAttributed().getTotal());
+        }
+
+        counter(out, "antipaotu_detection_evaluations_total", "阈值检测次数", metrics.getDetectionEvaluations());
+        counter(out, "antipaotu_detections_total", "触发的跑图检测次数", metrics.getDetections());
+        counter(out, "antipaotu_bans_total", "封禁次数", metrics.getBans());
+
+        // 遍历玩家数据只在这里（定时汇总时）进行
+        int activeWindows = 0;
+        for (PlayerData playerData : plugin.getDetectionManager().getAllPlayerData().values()) {
+            if (playerData.getCurrentWindowChunkCount() > 0) {
+                activeWindows++;
+            }
+        }
+        gauge(out, "antipaotu_banned_players", "当前被封禁的玩家数量", plugin.getBanManager().getBannedPlayerCount());
+        gauge(out, "antipaotu_player_data", "保存的玩家检测数据数量", plugin.getDetectionManager().getAllPlayerData().size());
+        gauge(out, "antipaotu_active_windows", "当前窗口内有新区块的玩家数量", activeWindows);
+        gauge(out, "antipaotu_recent_chunks", "追踪中的近期区块数量", plugin.getChunkTracker().getTrackedChunkCount());
+
+        gauge(out, "antipaotu_onebot_queue_depth", "OneBot发送队列中等待的消息数量", plugin.getOneBotManager().getQueueDepth());
+        counter(out, "antipaotu_onebot_sent_total", "OneBot发送成功的请求数量", plugin.getOneBotManager().getSentCount());
+        counter(out, "antipaotu_onebot_failed_total", "OneBot发送失败的请求数量", plugin.getOneBotManager().getFailedCount());
+        counter(out, "antipaotu_onebot_dropped_total", "OneBot发送队列丢弃的消息数量", plugin.getOneBotManager().getDroppedCount());
+
+        header(out, "antipaotu_onebot_target_sent_total", "counter", "各OneBot目标的发送次数（合并发送计一次）");
+        for (OneBotTarget target : plugin.getOneBotManager().getTargets()) {
+            sample(out, "antipaotu_onebot_target_sent_total", targetLabels(target), target.getSentCount());
+        }
+        header(out, "antipaotu_onebot_target_deferred_total", "counter", "各OneBot目标因限速或请求未完成而暂缓的消息数量");
+        for (OneBotTarget target : plugin.getOneBotManager().getTargets()) {
+            sample(out, "antipaotu_onebot_target_deferred_total", targetLabels(target), target.getDeferredCount());
+        }
+        header(out, "antipaotu_onebot_target_pending", "gauge", "各OneBot目标当前暂缓待发送的消息数量");
+        for (OneBotTarget target : plugin.getOneBotManager().getTargets()) {
+            sample(out, "antipaotu_onebot_target_pending", targetLabels(target), target.getPendingCount());
+        }
+        header(out, "antipaotu_onebot_target_in_flight", "gauge", "各OneBot目标正在进行的请求数量");
+        for (OneBotTarget target : plugin.getOneBotManager().getTargets()) {
+            sample(out, "antipaotu_onebot_target_in_flight", targetLabels(target), target.getInFlightCount());
+        }
+
+        histogram(out, "antipaotu_chunk_load_seconds", "ChunkLoadEvent处理耗时（新区块）", metrics.getChunkLoadTime());
+        histogram(out, "antipaotu_chunk_attribution_seconds", "区块归属耗时", metrics.getAttributionTime());
+        histogram(out, "antipaotu_onebot_round_trip_seconds", "OneBot请求往返耗时", metrics.getOneBotRoundTrip());
+
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        sample(out, name, "", value);
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        sample(out, name, "", value);
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        header(out, name, "histogram", help);
+        for (int i = 0; i < BUCKET_BOUNDS_NANOS.length; i++) {
+            sample(out, name + "_bucket", label("le", BUCKET_LABELS[i]), snapshot.getCountAtOrBelow(BUCKET_BOUNDS_NANOS[i]));
+        }
+        sample(out, name + "_bucket", label("le", "+Inf"), snapshot.getCount());
+        out.append(name).append("_sum ").append(snapshot.getSum() / 1_000_000_000.0).append('\n');
+        sample(out, name + "_count", "", snapshot.getCount());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static String targetLabels(OneBotTarget target) {
+        return "{type=\"" + (target.isGroup() ? "group" : "private") + "\",id=\"" + target.getId() + "\"}";
+    }
+
+    private static String label(String name, String value) {
+        return "{" + name + "=\"" + escape(value) + "\"}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
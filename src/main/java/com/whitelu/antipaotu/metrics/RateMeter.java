@@ -0,0 +1,53 @@
+package com.whitelu.antipaotu.metrics;
+
+import com.whitelu.antipaotu.data.SlidingWindowCounter;
+import com.whitelu.antipaotu.util.MonotonicClock;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 速率计
+ * 累计总数使用 LongAdder 分段计数，最近一分钟的速率使用按秒分桶的滑动窗口计算
+ */
+public class RateMeter {
+
+    private static final int WINDOW_SECONDS = 60;
+
+    private final LongAdder total;
+    private final SlidingWindowCounter recent;
+
+    public RateMeter() {
+        this.total = new LongAdder();
+        this.recent = new SlidingWindowCounter(WINDOW_SECONDS);
+    }
+
+    /**
+     * 计数一次
+     */
+    public void mark() {
+        total.increment();
+        recent.add(MonotonicClock.nowSeconds());
+    }
+
+    /**
+     * 获取累计总数
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * 获取最近一分钟的平均每秒次数
+     */
+    public double getRatePerSecond() {
+        return recent.count(MonotonicClock.nowSeconds()) / (double) WINDOW_SECONDS;
+    }
+
+    /**
+     * 清空计数
+     */
+    public void reset() {
+        total.reset();
+        recent.reset();
+    }
+}
@@ -0,0 +1,101 @@
+package com.whitelu.antipaotu.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 截止时间队列
+ * 每个键最多保留一个最早的截止时间，按截止时间顺序取出到期的键，
+ * 调度和取出均为 O(log n)
+ *
+ * @param <K> 键类型
+ */
+public class DeadlineQueue<K> {
+
+    private final PriorityQueue<Deadline<K>> heap;
+    private final Map<K, Long> deadlines;
+
+    public DeadlineQueue() {
+        this.heap = new PriorityQueue<>();
+        this.deadlines = new HashMap<>();
+    }
+
+    /**
+     * 调度一个键，如果已有更早的截止时间则保持不变
+     *
+     * @param key 键
+     * @param deadline 截止时间
+     * @return 是否更新了截止时间
+     */
+    public synchronized boolean schedule(K key, long deadline) {
+        Long existing = deadlines.get(key);
+        if (existing != null && existing <= deadline) {
+            return false;
+        }
+
+        deadlines.put(key, deadline);
+        heap.add(new Deadline<>(key, deadline));
+        return true;
+    }
+
+    /**
+     * 取出一个已到期的键
+     *
+     * @param now 当前时间
+     * @return 到期的键，没有则返回null
+     */
+    public synchronized K pollDue(long now) {
+        while (!heap.isEmpty() && heap.peek().deadline <= now) {
+            Deadline<K> head = heap.poll();
+            Long current = deadlines.get(head.key);
+            // 被更早的截止时间替换或已取消的条目直接丢弃
+            if (current != null && current == head.deadline) {
+                deadlines.remove(head.key);
+                return head.key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 取消一个键的调度
+     *
+     * @param key 键
+     */
+    public synchronized void remove(K key) {
+        deadlines.remove(key);
+    }
+
+    /**
+     * 获取已调度的键数量
+     *
+     * @return 键数量
+     */
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * 清空队列
+     */
+    public synchronized void clear() {
+        heap.clear();
+        deadlines.clear();
+    }
+
+    private static final class Deadline<K> implements Comparable<Deadline<K>> {
+        private final K key;
+        private final long deadline;
+
+        private Deadline(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Deadline<K> other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.whitelu.antipaotu.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的消息模板
+ * 加载配置时把消息拆分为文本片段和 %name% 占位符，
+ * 格式化时按顺序拼接到线程复用的 StringBuilder 中，不再逐个占位符调用 String.replace
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_RETAINED_BUFFER = 4096;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String source;
+    // literals.length == placeholders.length + 1
+    private final String[] literals;
+    private final String[] placeholders;
+
+    private MessageTemplate(String source, String[] literals, String[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * 编译消息模板
+     *
+     * @param text 消息文本
+     * @return 模板
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int search = 0;
+        while (true) {
+            int open = text.indexOf('%', search);
+            if (open < 0) {
+                break;
+            }
+            int close = text.indexOf('%', open + 1);
+            if (close < 0) {
+                break;
+            }
+
+            if (isPlaceholderName(text, open + 1, close)) {
+                literals.add(text.substring(literalStart, open));
+                placeholders.add(text.substring(open, close + 1));
+                literalStart = close + 1;
+                search = close + 1;
+            } else {
+                // 不是占位符的 %（如"50%"），从下一个 % 继续查找
+                search = close;
+            }
+        }
+        literals.add(text.substring(literalStart));
+
+        return new MessageTemplate(text, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * 格式化消息
+     * 没有提供值的占位符保持原样
+     *
+     * @param replacements 占位符和替换值的键值对，如 "%player%", name
+     * @return 格式化后的消息
+     */
+    public String render(String... replacements) {
+        if (placeholders.length == 0) {
+            return source;
+        }
+
+        StringBuilder builder = BUFFER.get();
+        builder.setLength(0);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            builder.append(lookup(placeholders[i], replacements));
+        }
+        builder.append(literals[placeholders.length]);
+
+        String result = builder.toString();
+        if (builder.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * 获取模板原文
+     *
+     * @return 原文
+     */
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static String lookup(String placeholder, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (placeholder.equals(replacements[i])) {
+                return replacements[i + 1];
+            }
+        }
+        return placeholder;
+    }
+
+    private static boolean isPlaceholderName(String text, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,7 +1,10 @@
 package com.whitelu.antipaotu.util;
 
 import com.whitelu.antipaotu.AntiPaotuPlugin;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 
 /**
  * 消息工具类
@@ -35,18 +38,7 @@ public class MessageUtil {
      * @param placeholders 占位符和替换值的键值对
      */
     public void sendMessage(CommandSender sender, String messagePath, String... placeholders) {
-        String message = plugin.getConfigManager().getFormattedMessage(messagePath, "§c消息未找到: " + messagePath);
-        
-
-        if (placeholders.length % 2 == 0) {
-            for (int i = 0; i < placeholders.length; i += 2) {
-                String placeholder = placeholders[i];
-                String replacement = placeholders[i + 1];
-                message = message.replace(placeholder, replacement);
-            }
-        }
-        
-        sender.sendMessage(message);
+        sender.sendMessage(formatMessage(messagePath, placeholders));
     }
     
     /**
@@ -57,18 +49,24 @@ public class MessageUtil {
      * @return 格式化后的消息
      */
     public String formatMessage(String messagePath, String... placeholders) {
-        String message = plugin.getConfigManager().getFormattedMessage(messagePath, "§c消息未找到: " + messagePath);
-        
-
-        if (placeholders.length % 2 == 0) {
-            for (int i = 0; i < placeholders.length; i += 2) {
-                String placeholder = placeholders[i];
-                String replacement = placeholders[i + 1];
-                message = message.replace(placeholder, replacement);
+        return plugin.getConfigManager().getFormattedMessageTemplate(messagePath, "§c消息未找到: " + messagePath)
+                     .render(placeholders);
+    }
+    
+    /**
+     * 向拥有 antipaotu.notice 权限的在线玩家广播消息
+     * 消息只转换一次为 Component，开销只与接收者数量有关，可在任意线程调用
+     * 
+     * @param message 消息内容（§ 颜色代码）
+     */
+    public void broadcastNotice(String message) {
+        Component component = null;
+        for (Player player : plugin.getPlayerStateTracker().getNoticeRecipients()) {
+            if (component == null) {
+                component = LegacyComponentSerializer.legacySection().deserialize(message);
             }
+            player.sendMessage(component);
         }
-        
-        return message;
     }
     
     /**
@@ -0,0 +1,87 @@
+package com.whitelu.antipaotu.util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 单调时钟
+ * 基于 System.nanoTime 的毫秒时钟，不受系统时间调整（如 NTP 校时）影响，
+ * 插件内部的冷却、封禁和窗口时间都使用这里的毫秒值
+ */
+public final class MonotonicClock {
+
+    /**
+     * 表示"从未发生"的时间值，nowMillis() 总是大于它
+     */
+    public static final long NEVER = 0L;
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    // 起点向前偏移1毫秒，保证 nowMillis() 从1开始
+    private static final long ORIGIN_NANOS = System.nanoTime() - NANOS_PER_MILLI;
+
+    private MonotonicClock() {
+    }
+
+    /**
+     * 获取当前时钟值
+     *
+     * @return 自插件加载以来的毫秒数
+     */
+    public static long nowMillis() {
+        return (System.nanoTime() - ORIGIN_NANOS) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * 获取当前时钟值（秒）
+     *
+     * @return 自插件加载以来的秒数
+     */
+    public static long nowSeconds() {
+        return nowMillis() / 1000L;
+    }
+
+    /**
+     * 获取距离指定截止时间的剩余毫秒数
+     *
+     * @param deadlineMillis 截止时间
+     * @return 剩余毫秒数，已过期时返回0
+     */
+    public static long remainingMillis(long deadlineMillis) {
+        return Math.max(0L, deadlineMillis - nowMillis());
+    }
+
+    /**
+     * 将时钟值换算为 Unix 毫秒时间戳，用于持久化
+     *
+     * @param clockMillis 时钟值
+     * @return Unix 毫秒时间戳
+     */
+    public static long toEpochMillis(long clockMillis) {
+        return System.currentTimeMillis() - (nowMillis() - clockMillis);
+    }
+
+    /**
+     * 将持久化的 Unix 毫秒时间戳换算为时钟值
+     * 只在加载时按当前系统时间换算一次，之后不再受系统时间调整影响
+     *
+     * @param epochMillis Unix 毫秒时间戳
+     * @return 时钟值
+     */
+    public static long fromEpochMillis(long epochMillis) {
+        return nowMillis() - (System.currentTimeMillis() - epochMillis);
+    }
+
+    /**
+     * 将时钟值换算为本地日期时间，仅用于向玩家或管理员显示
+     *
+     * @param clockMillis 时钟值
+     * @return 本地日期时间，时钟值为 NEVER 时返回null
+     */
+    public static LocalDateTime toLocalDateTime(long clockMillis) {
+        if (clockMillis == NEVER) {
+            return null;
+        }
+        return LocalDateTime.now().minus(nowMillis() - clockMillis, ChronoUnit.MILLIS);
+    }
+}
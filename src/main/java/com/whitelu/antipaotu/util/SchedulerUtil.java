@@ -0,0 +1,116 @@
+package com.whitelu.antipaotu.util;
+
+import com.whitelu.antipaotu.AntiPaotuPlugin;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度工具类
+ * 统一封装全局、异步和实体调度器，Folia 与 Paper 使用同一套调度方式：
+ * 全局任务运行在全局区域线程，玩家相关任务运行在玩家所在区域的线程
+ */
+public class SchedulerUtil {
+
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final AntiPaotuPlugin plugin;
+
+    public SchedulerUtil(AntiPaotuPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 在全局区域线程上运行任务
+     *
+     * @param task 任务
+     */
+    public void runGlobal(Runnable task) {
+        Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+    }
+
+    /**
+     * 在全局区域线程上周期运行任务
+     *
+     * @param task 任务
+     * @param delayTicks 首次延迟（tick）
+     * @param periodTicks 周期（tick）
+     * @return 已调度的任务
+     */
+    public ScheduledTask runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin,
+            scheduledTask -> task.run(), Math.max(1L, delayTicks), periodTicks);
+    }
+
+    /**
+     * 在异步线程上运行任务
+     *
+     * @param task 任务
+     */
+    public void runAsync(Runnable task) {
+        Bukkit.getAsyncScheduler().runNow(plugin, scheduledTask -> task.run());
+    }
+
+    /**
+     * 在异步线程上延迟运行任务
+     *
+     * @param task 任务
+     * @param delayTicks 延迟（tick）
+     * @return 已调度的任务
+     */
+    public ScheduledTask runAsyncLater(Runnable task, long delayTicks) {
+        return Bukkit.getAsyncScheduler().runDelayed(plugin, scheduledTask -> task.run(),
+            delayTicks * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在异步线程上周期运行任务
+     *
+     * @param task 任务
+     * @param delayTicks 首次延迟（tick）
+     * @param periodTicks 周期（tick）
+     * @return 已调度的任务
+     */
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getAsyncScheduler().runAtFixedRate(plugin, scheduledTask -> task.run(),
+            delayTicks * MILLIS_PER_TICK, periodTicks * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在实体所在区域的线程上运行任务
+     * 实体已被移除（例如玩家离线）时任务不会执行
+     *
+     * @param entity 实体
+     * @param task 任务
+     */
+    public void runForEntity(Entity entity, Runnable task) {
+        entity.getScheduler().run(plugin, scheduledTask -> task.run(), null);
+    }
+
+    /**
+     * 在实体所在区域的线程上周期运行任务，实体被移除后自动停止
+     *
+     * @param entity 实体
+     * @param task 任务
+     * @param delayTicks 首次延迟（tick）
+     * @param periodTicks 周期（tick）
+     * @return 已调度的任务，实体已被移除时返回null
+     */
+    public ScheduledTask runEntityTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        return entity.getScheduler().runAtFixedRate(plugin, scheduledTask -> task.run(), null,
+            Math.max(1L, delayTicks), periodTicks);
+    }
+
+    /**
+     * 取消任务
+     *
+     * @param task 任务，可以为null
+     */
+    public static void cancel(ScheduledTask task) {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+}
@@ -2,11 +2,11 @@ package com.whitelu.antipaotu.util;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 
 /**
  * 时间工具类
- * 用于时间相关的计算和格式化
+ * 用于时间相关的计算和格式化，计算使用 MonotonicClock 的毫秒值，
+ * LocalDateTime 只用于格式化显示
 
  */
 public class TimeUtil {
@@ -40,96 +40,87 @@ public class TimeUtil {
         return dateTime.format(TIME_FORMATTER);
     }
     
+    /**
+     * 格式化时钟值对应的日期时间
+     * 
+     * @param clockMillis MonotonicClock 时钟值
+     * @return 格式化的字符串
+     */
+    public static String formatClockTime(long clockMillis) {
+        return formatDateTime(MonotonicClock.toLocalDateTime(clockMillis));
+    }
+    
     /**
      * 计算两个时间之间的秒数差
      * 
-     * @param start 开始时间
-     * @param end 结束时间
+     * @param start 开始时钟值
+     * @param end 结束时钟值
      * @return 秒数差
      */
-    public static long getSecondsBetween(LocalDateTime start, LocalDateTime end) {
-        if (start == null || end == null) {
+    public static long getSecondsBetween(long start, long end) {
+        if (start == MonotonicClock.NEVER || end == MonotonicClock.NEVER) {
             return 0;
         }
-        return ChronoUnit.SECONDS.between(start, end);
+        return (end - start) / 1000L;
     }
     
     /**
      * 计算两个时间之间的分钟数差
      * 
-     * @param start 开始时间
-     * @param end 结束时间
+     * @param start 开始时钟值
+     * @param end 结束时钟值
      * @return 分钟数差
      */
-    public static long getMinutesBetween(LocalDateTime start, LocalDateTime end) {
-        if (start == null || end == null) {
-            return 0;
-        }
-        return ChronoUnit.MINUTES.between(start, end);
+    public static long getMinutesBetween(long start, long end) {
+        return getSecondsBetween(start, end) / 60L;
     }
     
     /**
      * 检查时间是否在指定秒数之前
      * 
-     * @param time 要检查的时间
+     * @param time 要检查的时钟值
      * @param secondsAgo 多少秒之前
      * @return 是否在指定时间之前
      */
-    public static boolean isTimeBefore(LocalDateTime time, long secondsAgo) {
-        if (time == null) {
+    public static boolean isTimeBefore(long time, long secondsAgo) {
+        if (time == MonotonicClock.NEVER) {
             return true;
         }
-        LocalDateTime cutoffTime = LocalDateTime.now().minusSeconds(secondsAgo);
-        return time.isBefore(cutoffTime);
+        return time < MonotonicClock.nowMillis() - secondsAgo * 1000L;
     }
     
     /**
      * 检查时间是否在指定分钟数之前
      * 
-     * @param time 要检查的时间
+     * @param time 要检查的时钟值
      * @param minutesAgo 多少分钟之前
      * @return 是否在指定时间之前
      */
-    public static boolean isTimeBeforeMinutes(LocalDateTime time, long minutesAgo) {
-        if (time == null) {
-            return true;
-        }
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(minutesAgo);
-        return time.isBefore(cutoffTime);
+    public static boolean isTimeBeforeMinutes(long time, long minutesAgo) {
+        return isTimeBefore(time, minutesAgo * 60L);
     }
     
     /**
      * 获取当前时间到指定时间的剩余秒数
      * 
-     * @param targetTime 目标时间
+     * @param targetTime 目标时钟值
      * @return 剩余秒数，如果目标时间已过则返回0
      */
-    public static long getRemainingSeconds(LocalDateTime targetTime) {
-        if (targetTime == null) {
-            return 0;
-        }
-        LocalDateTime now = LocalDateTime.now();
-        if (now.isAfter(targetTime)) {
+    public static long getRemainingSeconds(long targetTime) {
+        if (targetTime == MonotonicClock.NEVER) {
             return 0;
         }
-        return ChronoUnit.SECONDS.between(now, targetTime);
+        return MonotonicClock.remainingMillis(targetTime) / 1000L;
     }
     
     /**
      * 获取当前时间到指定时间的剩余分钟数（向上取整）
      * 
-     * @param targetTime 目标时间
+     * @param targetTime 目标时钟值
      * @return 剩余分钟数，如果目标时间已过则返回0
      */
-    public static long getRemainingMinutes(LocalDateTime targetTime) {
-        if (targetTime == null) {
-            return 0;
-        }
-        LocalDateTime now = LocalDateTime.now();
-        if (now.isAfter(targetTime)) {
-            return 0;
-        }
-        long seconds = ChronoUnit.SECONDS.between(now, targetTime);
+    public static long getRemainingMinutes(long targetTime) {
+        long seconds = getRemainingSeconds(targetTime);
         return (seconds + 59) / 60;
     }
     
@@ -168,16 +159,15 @@ public class TimeUtil {
     /**
      * 获取相对时间描述
      * 
-     * @param time 时间
+     * @param time 时钟值
      * @return 相对时间描述
      */
-    public static String getRelativeTime(LocalDateTime time) {
-        if (time == null) {
+    public static String getRelativeTime(long time) {
+        if (time == MonotonicClock.NEVER) {
             return "未知时间";
         }
         
-        LocalDateTime now = LocalDateTime.now();
-        long seconds = ChronoUnit.SECONDS.between(time, now);
+        long seconds = getSecondsBetween(time, MonotonicClock.nowMillis());
         
         if (seconds < 0) {
             return "未来时间";
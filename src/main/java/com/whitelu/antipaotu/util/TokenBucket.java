@@ -0,0 +1,74 @@
+package com.whitelu.antipaotu.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶限流器
+ * 按 GCRA（通用信元速率算法）实现，与容量为 burst、每 interval 补充一个令牌的令牌桶等价：
+ * 只用一个 AtomicLong 保存下一个令牌的理论到达时间，获取令牌通过 CAS 完成，不加锁
+ */
+public class TokenBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    private volatile long intervalMillis;
+    private volatile long toleranceMillis;
+
+    /**
+     * @param intervalMillis 补充一个令牌的间隔（毫秒），0表示不限流
+     * @param burst 桶容量，即允许连续获取的令牌数
+     */
+    public TokenBucket(long intervalMillis, int burst) {
+        this.theoreticalArrival = new AtomicLong(MonotonicClock.NEVER);
+        configure(intervalMillis, burst);
+    }
+
+    /**
+     * 更新限流参数，已消耗的令牌保持不变
+     *
+     * @param intervalMillis 补充一个令牌的间隔（毫秒），0表示不限流
+     * @param burst 桶容量
+     */
+    public void configure(long intervalMillis, int burst) {
+        this.intervalMillis = Math.max(0L, intervalMillis);
+        this.toleranceMillis = this.intervalMillis * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param now 当前时钟值
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(long now) {
+        long interval = intervalMillis;
+        if (interval == 0L) {
+            return true;
+        }
+
+        long tolerance = toleranceMillis;
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = Math.max(arrival, now);
+            if (start - now > tolerance) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 获取距离下一个令牌可用的时间
+     *
+     * @param now 当前时钟值
+     * @return 等待毫秒数，当前已有令牌时返回0
+     */
+    public long millisUntilAvailable(long now) {
+        if (intervalMillis == 0L) {
+            return 0L;
+        }
+        return Math.max(0L, theoreticalArrival.get() - toleranceMillis - now);
+    }
+}
@@ -0,0 +1,183 @@
+package com.whitelu.antipaotu.data;
+
+import com.whitelu.antipaotu.data.BanStore.StoredBan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class BanStoreTest {
+
+    private static final Logger LOGGER = Logger.getLogger("BanStoreTest");
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final UUID ALICE = new UUID(1L, 1L);
+    private static final UUID BOB = new UUID(2L, 2L);
+    private static final UUID CAROL = new UUID(3L, 3L);
+
+    @TempDir
+    Path directory;
+
+    // 压缩时在写线程上读取
+    private final List<StoredBan> current = new CopyOnWriteArrayList<>();
+
+    @Test
+    void roundTripThroughSnapshot() {
+        BanStore store = open();
+        assertTrue(store.load().isEmpty());
+
+        current.add(new StoredBan(ALICE, "Alice", 1000L, 61000L));
+        current.add(new StoredBan(BOB, "鲍勃", 2000L, 62000L));
+        store.close(current);
+
+        Map<UUID, StoredBan> loaded = open().load();
+        assertEquals(2, loaded.size());
+        StoredBan alice = loaded.get(ALICE);
+        assertEquals("Alice", alice.getPlayerName());
+        assertEquals(1000L, alice.getBannedAt());
+        assertEquals(61000L, alice.getExpiresAt());
+        assertEquals("鲍勃", loaded.get(BOB).getPlayerName());
+    }
+
+    @Test
+    void replaysLogAfterCrash() {
+        BanStore store = open();
+        store.load();
+        store.appendBan(new StoredBan(ALICE, "Alice", 1000L, 61000L));
+        store.appendBan(new StoredBan(BOB, "Bob", 2000L, 62000L));
+        store.appendUnban(ALICE);
+        crash(store, () -> logSize() == HEADER_SIZE + recordSize("Alice") + recordSize("Bob") + recordSize(""));
+
+        Map<UUID, StoredBan> loaded = open().load();
+        assertEquals(1, loaded.size());
+        assertFalse(loaded.containsKey(ALICE));
+        assertEquals(62000L, loaded.get(BOB).getExpiresAt());
+    }
+
+    @Test
+    void discardsTruncatedTail() throws IOException {
+        BanStore store = open();
+        store.load();
+        store.appendBan(new StoredBan(ALICE, "Alice", 1000L, 61000L));
+        store.appendBan(new StoredBan(BOB, "Bob", 2000L, 62000L));
+        crash(store, () -> logSize() == HEADER_SIZE + recordSize("Alice") + recordSize("Bob"));
+
+        // 截掉最后一条记录的末尾，模拟写到一半时崩溃
+        try (FileChannel channel = FileChannel.open(directory.resolve("bans.log"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        BanStore reopened = open();
+        Map<UUID, StoredBan> loaded = reopened.load();
+        assertEquals(1, loaded.size());
+        assertTrue(loaded.containsKey(ALICE));
+
+        // 不完整的记录已被截掉，之后追加的记录可以正常读取
+        assertEquals(HEADER_SIZE + recordSize("Alice"), logSize());
+        reopened.appendBan(new StoredBan(CAROL, "Carol", 3000L, 63000L));
+        crash(reopened, () -> logSize() == HEADER_SIZE + recordSize("Alice") + recordSize("Carol"));
+
+        loaded = open().load();
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.containsKey(ALICE));
+        assertTrue(loaded.containsKey(CAROL));
+    }
+
+    @Test
+    void replaysLogOnTopOfCompactedSnapshot() {
+        BanStore store = open();
+        store.load();
+        current.add(new StoredBan(ALICE, "Alice", 1000L, 61000L));
+        current.add(new StoredBan(BOB, "Bob", 2000L, 62000L));
+        store.appendBan(current.get(0));
+        store.appendBan(current.get(1));
+        store.compact();
+
+        current.remove(0);
+        store.appendUnban(ALICE);
+        crash(store, () -> Files.exists(directory.resolve("bans.snapshot"))
+                           && logSize() == HEADER_SIZE + recordSize(""));
+
+        Map<UUID, StoredBan> loaded = open().load();
+        assertEquals(1, loaded.size());
+        assertTrue(loaded.containsKey(BOB));
+    }
+
+    @Test
+    void ignoresUnknownFormat() throws IOException {
+        Files.write(directory.resolve("bans.snapshot"), new byte[] {0, 0, 0, 0, 0, 0, 0, 9, 1, 2, 3});
+
+        assertTrue(open().load().isEmpty());
+    }
+
+    private BanStore open() {
+        return new BanStore(directory.toFile(), LOGGER, () -> current);
+    }
+
+    /**
+     * 模拟崩溃：等待写线程写完后保存磁盘上的文件，关闭存储后恢复，
+     * 去掉 close 写入的最终快照
+     */
+    private void crash(BanStore store, BooleanSupplier written) {
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!written.getAsBoolean()) {
+                if (System.nanoTime() > deadline) {
+                    fail("等待写入封禁记录超时");
+                }
+                Thread.sleep(5);
+            }
+
+            Path snapshot = directory.resolve("bans.snapshot");
+            Path log = directory.resolve("bans.log");
+            byte[] snapshotBytes = Files.exists(snapshot) ? Files.readAllBytes(snapshot) : null;
+            byte[] logBytes = Files.readAllBytes(log);
+
+            store.close(List.of());
+
+            Files.write(log, logBytes);
+            if (snapshotBytes != null) {
+                Files.write(snapshot, snapshotBytes);
+            } else {
+                Files.delete(snapshot);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+    }
+
+    private long logSize() {
+        try {
+            return Files.size(directory.resolve("bans.log"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int recordSize(String playerName) {
+        // 操作类型、玩家ID、封禁时间、到期时间、名字长度、名字
+        return 1 + 16 + 8 + 8 + 2 + playerName.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,83 @@
+package com.whitelu.antipaotu.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkStoreTest {
+
+    @Test
+    void keyRoundTrip() {
+        long key = ChunkStore.key((short) 3, -1875000, 1874999);
+        assertEquals(3, ChunkStore.worldIndex(key));
+        assertEquals(-1875000, ChunkStore.chunkX(key));
+        assertEquals(1874999, ChunkStore.chunkZ(key));
+    }
+
+    @Test
+    void putOverwritesAndRemoves() {
+        ChunkStore store = new ChunkStore();
+        long key = ChunkStore.key((short) 0, 10, -10);
+        store.put(key, 100L, 1);
+        store.put(key, 200L, 2);
+
+        assertEquals(1, store.size());
+        assertEquals(0, store.countSince(1, 0L));
+        assertEquals(1, store.countSince(2, 150L));
+        assertTrue(store.remove(key));
+        assertFalse(store.remove(key));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void matchesMapAcrossPurgesAndShrinking() {
+        Random random = new Random(42);
+        ChunkStore store = new ChunkStore();
+        Map<Long, long[]> expected = new HashMap<>();
+
+        long time = 0;
+        for (int round = 0; round < 10; round++) {
+            // 每轮写入的数量差别很大，使表反复扩容和收缩
+            int writes = round % 2 == 0 ? 20000 : 500;
+            for (int i = 0; i < writes; i++) {
+                long key = ChunkStore.key((short) random.nextInt(3), random.nextInt(400) - 200, random.nextInt(400) - 200);
+                int player = random.nextInt(5);
+                store.put(key, ++time, player);
+                expected.put(key, new long[] {time, player});
+
+                if (random.nextInt(10) == 0) {
+                    long removeKey = ChunkStore.key((short) random.nextInt(3), random.nextInt(400) - 200,
+                                                    random.nextInt(400) - 200);
+                    assertEquals(expected.remove(removeKey) != null, store.remove(removeKey));
+                }
+            }
+
+            long cutoff = time - 400;
+            int removed = store.removeOlderThan(cutoff);
+            int before = expected.size();
+            expected.values().removeIf(entry -> entry[0] < cutoff);
+            assertEquals(before - expected.size(), removed);
+            assertEquals(expected.size(), store.size());
+
+            for (int player = 0; player < 5; player++) {
+                long since = time - 200;
+                int finalPlayer = player;
+                long count = expected.values().stream()
+                                     .filter(entry -> entry[1] == finalPlayer && entry[0] > since)
+                                     .count();
+                assertEquals(count, store.countSince(player, since));
+            }
+            // 回移后的记录仍然可以找到
+            for (Long key : expected.keySet().toArray(new Long[0])) {
+                store.put(key, expected.get(key)[0], (int) expected.get(key)[1]);
+            }
+            assertEquals(expected.size(), store.size());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.whitelu.antipaotu.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerDataTest {
+
+    private static final int TIME_WINDOW_SECONDS = 30;
+    private static final int EXPECTED_CHUNKS = 105;
+    private static final long STREAK_TIMEOUT_MILLIS = 60_000L;
+
+    private static PlayerData newPlayer() {
+        PlayerData playerData = new PlayerData(new UUID(1L, 1L), "Steve", TIME_WINDOW_SECONDS);
+        playerData.startNewDetectionWindow();
+        return playerData;
+    }
+
+    private static void fly(PlayerData playerData, int chunks) {
+        for (int i = 0; i < chunks; i++) {
+            playerData.addChunkToCurrentWindow(new ChunkData((short) 0, i, 0, 0, 1L, 0, 100, 0));
+        }
+    }
+
+    @Test
+    void consecutiveDetectionsAccumulate() {
+        PlayerData playerData = newPlayer();
+        playerData.triggerDetection(STREAK_TIMEOUT_MILLIS);
+        playerData.triggerDetection(STREAK_TIMEOUT_MILLIS);
+
+        assertEquals(2, playerData.getContinuousCount());
+    }
+
+    @Test
+    void emptyWindowAtCooldownEndResetsStreak() {
+        PlayerData playerData = newPlayer();
+        fly(playerData, EXPECTED_CHUNKS);
+        playerData.triggerDetection(STREAK_TIMEOUT_MILLIS);
+        assertEquals(1, playerData.getContinuousCount());
+
+        // 冷却结束时玩家已经落地，窗口内的区块都已过期
+        playerData.startNewDetectionWindow();
+        assertEquals(0, playerData.getCurrentWindowChunkCount());
+        assertTrue(playerData.resetContinuousCountIfBelow(playerData.getCurrentWindowChunkCount(), EXPECTED_CHUNKS));
+        assertEquals(0, playerData.getContinuousCount());
+
+        // 之后的另一次飞行重新从1开始计数
+        fly(playerData, EXPECTED_CHUNKS);
+        playerData.triggerDetection(STREAK_TIMEOUT_MILLIS);
+        assertEquals(1, playerData.getContinuousCount());
+    }
+
+    @Test
+    void belowThresholdResetsStreak() {
+        PlayerData playerData = newPlayer();
+        playerData.triggerDetection(STREAK_TIMEOUT_MILLIS);
+
+        assertFalse(playerData.resetContinuousCountIfBelow(EXPECTED_CHUNKS, EXPECTED_CHUNKS));
+        assertEquals(1, playerData.getContinuousCount());
+        assertTrue(playerData.resetContinuousCountIfBelow(EXPECTED_CHUNKS - 1, EXPECTED_CHUNKS));
+        assertEquals(0, playerData.getContinuousCount());
+    }
+
+    @Test
+    void nothingToResetBeforeFirstDetection() {
+        assertFalse(newPlayer().resetContinuousCountIfBelow(0, EXPECTED_CHUNKS));
+    }
+
+    @Test
+    void staleStreakRestartsOnNextDetection() throws InterruptedException {
+        PlayerData playerData = newPlayer();
+        playerData.triggerDetection(STREAK_TIMEOUT_MILLIS);
+
+        // 冷却结束时的检测被跳过（例如玩家离线），下一次检测距离上次已超过冷却时间加时间窗口
+        Thread.sleep(20L);
+        playerData.triggerDetection(10L);
+
+        assertEquals(1, playerData.getContinuousCount());
+    }
+}
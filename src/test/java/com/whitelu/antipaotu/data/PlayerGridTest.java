@@ -0,0 +1,119 @@
+package com.whitelu.antipaotu.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PlayerGridTest {
+
+    private static final UUID OVERWORLD = new UUID(1L, 1L);
+    private static final UUID NETHER = new UUID(1L, 2L);
+
+    private static PlayerState glider(int id, UUID worldId, double x, double z, int viewDistance) {
+        PlayerState state = new PlayerState(new UUID(2L, id), "player" + id);
+        state.setPosition(worldId, x, 128, z);
+        state.setGliding(true);
+        state.setViewDistance(viewDistance);
+        return state;
+    }
+
+    @Test
+    void findsNearestWithinViewDistance() {
+        PlayerGrid grid = new PlayerGrid();
+        PlayerState near = glider(1, OVERWORLD, 100, 100, 10);
+        PlayerState far = glider(2, OVERWORLD, 1000, 1000, 10);
+        grid.update(near);
+        grid.update(far);
+
+        assertSame(near, grid.findNearest(OVERWORLD, 8, 8));
+        assertSame(far, grid.findNearest(OVERWORLD, 62, 62));
+        // 超出 1.5 倍视距
+        assertNull(grid.findNearest(OVERWORLD, 30, 30));
+        assertNull(grid.findNearest(NETHER, 8, 8));
+    }
+
+    @Test
+    void followsMovesAndRemovals() {
+        PlayerGrid grid = new PlayerGrid();
+        PlayerState state = glider(1, OVERWORLD, 0, 0, 10);
+        grid.update(state);
+        assertSame(state, grid.findNearest(OVERWORLD, 0, 0));
+
+        // 跨单元移动
+        state.setPosition(OVERWORLD, 5000, 128, -5000);
+        grid.update(state);
+        assertNull(grid.findNearest(OVERWORLD, 0, 0));
+        assertSame(state, grid.findNearest(OVERWORLD, 312, -313));
+
+        // 跨世界移动
+        state.setPosition(NETHER, 0, 128, 0);
+        grid.update(state);
+        assertNull(grid.findNearest(OVERWORLD, 312, -313));
+        assertSame(state, grid.findNearest(NETHER, 0, 0));
+
+        grid.remove(state.getPlayerId());
+        assertNull(grid.findNearest(NETHER, 0, 0));
+        assertEquals(0, grid.size());
+    }
+
+    @Test
+    void matchesLinearSearch() {
+        Random random = new Random(42);
+        PlayerGrid grid = new PlayerGrid();
+        List<PlayerState> players = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            PlayerState state = glider(i, OVERWORLD, random.nextInt(20000) - 10000, random.nextInt(20000) - 10000,
+                                       2 + random.nextInt(31));
+            players.add(state);
+            grid.update(state);
+        }
+
+        for (int round = 0; round < 20; round++) {
+            // 部分玩家移动或离开，使单元表反复增删
+            for (int i = 0; i < 20; i++) {
+                PlayerState state = players.get(random.nextInt(players.size()));
+                if (random.nextInt(4) == 0) {
+                    grid.remove(state.getPlayerId());
+                    players.remove(state);
+                } else {
+                    state.setPosition(OVERWORLD, state.getX() + random.nextInt(400) - 200, 128,
+                                      state.getZ() + random.nextInt(400) - 200);
+                    grid.update(state);
+                }
+            }
+
+            for (int query = 0; query < 200; query++) {
+                PlayerState target = players.get(random.nextInt(players.size()));
+                int chunkX = ((int) Math.floor(target.getX()) >> 4) + random.nextInt(81) - 40;
+                int chunkZ = ((int) Math.floor(target.getZ()) >> 4) + random.nextInt(81) - 40;
+                assertSame(linearSearch(players, chunkX, chunkZ), grid.findNearest(OVERWORLD, chunkX, chunkZ));
+            }
+        }
+    }
+
+    private static PlayerState linearSearch(List<PlayerState> players, int chunkX, int chunkZ) {
+        double centerX = (chunkX << 4) + 8;
+        double centerZ = (chunkZ << 4) + 8;
+        PlayerState nearest = null;
+        double nearestDistanceSquared = Double.MAX_VALUE;
+        for (PlayerState state : players) {
+            double deltaX = state.getX() - centerX;
+            double deltaY = state.getY() - 128;
+            double deltaZ = state.getZ() - centerZ;
+            double distanceSquared = deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ;
+            double maxDistance = state.getViewDistance() * 16 * 1.5;
+            if (distanceSquared <= maxDistance * maxDistance && distanceSquared < nearestDistanceSquared) {
+                nearestDistanceSquared = distanceSquared;
+                nearest = state;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,55 @@
+package com.whitelu.antipaotu.data;
+
+import com.whitelu.antipaotu.util.MonotonicClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 注册表是静态的，每个用例使用不同的玩家ID，并在结束时取回自己释放的索引
+ */
+class PlayerRegistryTest {
+
+    @Test
+    void renameUpdatesName() {
+        UUID playerId = new UUID(10L, 1L);
+        int index = PlayerRegistry.indexOf(playerId, "Steve");
+        assertEquals(index, PlayerRegistry.indexOf(playerId, "Alex"));
+        assertEquals("Alex", PlayerRegistry.getPlayerName(index));
+        assertEquals(playerId, PlayerRegistry.getPlayerId(index));
+    }
+
+    @Test
+    void releasedIndexIsReusedOnlyAfterDelay() throws InterruptedException {
+        UUID first = new UUID(20L, 1L);
+        int index = PlayerRegistry.indexOf(first, "first");
+        int sizeBefore = PlayerRegistry.size();
+
+        PlayerRegistry.release(first, MonotonicClock.nowMillis() + 100L);
+        assertEquals(-1, PlayerRegistry.find(first));
+        assertNull(PlayerRegistry.getPlayerId(index));
+        assertNull(PlayerRegistry.getPlayerName(index));
+        assertEquals(sizeBefore - 1, PlayerRegistry.size());
+
+        // 旧的区块记录可能仍引用该索引，等待期间分配新索引
+        int during = PlayerRegistry.indexOf(new UUID(20L, 2L), "second");
+        assertNotEquals(index, during);
+
+        Thread.sleep(150L);
+        UUID third = new UUID(20L, 3L);
+        assertEquals(index, PlayerRegistry.indexOf(third, "third"));
+        assertEquals(third, PlayerRegistry.getPlayerId(index));
+        assertEquals("third", PlayerRegistry.getPlayerName(index));
+    }
+
+    @Test
+    void releasingUnknownPlayerIsIgnored() {
+        int sizeBefore = PlayerRegistry.size();
+        PlayerRegistry.release(new UUID(30L, 1L), 0L);
+        assertEquals(sizeBefore, PlayerRegistry.size());
+    }
+}
@@ -0,0 +1,174 @@
+package com.whitelu.antipaotu.manager;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 使用 JDK 自带的 HttpServer 模拟 OneBot HTTP API
+ */
+class OneBotHttpTransportTest {
+
+    private static final Logger LOGGER = Logger.getLogger("OneBotHttpTransportTest");
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+    // 模拟接口的响应
+    private volatile int status = 200;
+    private volatile String response = "{\"status\":\"ok\",\"retcode\":0,\"data\":{\"message_id\":1}}";
+    private volatile long delayMillis;
+
+    private record Request(String method, String path, String authorization, String contentType,
+                           String body, InetSocketAddress remote) {
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Request(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                                 exchange.getRequestHeaders().getFirst("Authorization"),
+                                 exchange.getRequestHeaders().getFirst("Content-Type"),
+                                 body, exchange.getRemoteAddress()));
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private OneBotHttpTransport transport(String path, String accessToken) {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        return new OneBotHttpTransport(LOGGER, () -> false, uri, accessToken, 5);
+    }
+
+    private static JsonObject groupMessage(String message) {
+        JsonObject params = new JsonObject();
+        params.addProperty("group_id", 123456L);
+        params.addProperty("message", message);
+        return params;
+    }
+
+    @Test
+    void postsActionAsJson() {
+        OneBotHttpTransport transport = transport("/api/", "secret");
+        try {
+            JsonObject result = transport.request("send_group_msg", groupMessage("玩家 Steve 疑似跑图"), 5000L).join();
+
+            assertEquals("ok", result.get("status").getAsString());
+            assertEquals(0, result.get("retcode").getAsInt());
+
+            Request request = requests.get(0);
+            assertEquals("POST", request.method());
+            assertEquals("/api/send_group_msg", request.path());
+            assertEquals("Bearer secret", request.authorization());
+            assertEquals("application/json; charset=utf-8", request.contentType());
+            assertEquals("{\"group_id\":123456,\"message\":\"玩家 Steve 疑似跑图\"}", request.body());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    void omitsAuthorizationWithoutToken() {
+        OneBotHttpTransport transport = transport("/api", "");
+        try {
+            transport.request("send_private_msg", new JsonObject(), 5000L).join();
+
+            assertEquals("/api/send_private_msg", requests.get(0).path());
+            assertNull(requests.get(0).authorization());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    void reusesConnection() {
+        OneBotHttpTransport transport = transport("", null);
+        try {
+            for (int i = 0; i < 5; i++) {
+                transport.request("send_group_msg", groupMessage("消息 " + i), 5000L).join();
+            }
+
+            assertEquals(5, requests.size());
+            InetSocketAddress first = requests.get(0).remote();
+            for (Request request : requests) {
+                assertEquals(first, request.remote());
+            }
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    void failsOnErrorStatus() {
+        status = 401;
+        response = "{}";
+        OneBotHttpTransport transport = transport("", "wrong");
+        try {
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> transport.request("send_group_msg", groupMessage("test"), 5000L).join());
+            assertEquals("HTTP 401", e.getCause().getMessage());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    void failsOnTimeout() {
+        delayMillis = 2000L;
+        OneBotHttpTransport transport = transport("", null);
+        try {
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> transport.request("send_group_msg", groupMessage("test"), 200L).join());
+            assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        } finally {
+            transport.close();
+        }
+    }
+}